@@ -1,40 +1,231 @@
 package board;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 import board.components.Ground;
 import board.components.Piece;
 import engine.simulation.Simulation;
+import repositories.PiecesRepository;
 import stats.Match;
+import stats.MatchParameters;
 import strategy.data.Coordinates;
 
 /**
  * This class represents the playing board. Boards are used in {@link Match}
  * (playing board) and {@link Simulation} to make simulations of the playing
  * board.
- * 
+ *
+ * The units are stored in an array indexed by square (x * BOARD_Y_LENGTH + y)
+ * so that looking a piece up does not allocate anything. The occupancy, the
+ * color and the type of the units are also kept in bit planes (one bit per
+ * square, {@link BoardParameters#BITBOARD_WORDS} longs per plane).
+ *
+ * The board also keeps the {@link Zobrist} key of its position and the
+ * {@link Evaluation} of the units of each color, they are updated every time a
+ * unit is put or removed and every time a move is made.
+ *
  * @author Dorian CHENET
  * @see Piece
  * @see Ground
+ * @see BoardParameters
+ * @see Zobrist
+ * @see Evaluation
  */
 public class Board {
 
 	// This array contains the ground informations
 	private Ground[][] environement = new Ground[BoardParameters.BOARD_X_LENGTH][BoardParameters.BOARD_Y_LENGTH];
 
-	// This HashMap contains the units
-	private HashMap<Coordinates, Piece> units = new HashMap<Coordinates, Piece>();
+	// This array contains the units, indexed by square
+	private Piece[] units = new Piece[BoardParameters.BOARD_SQUARES];
+
+	// Bit planes: every occupied square, the squares of each color and the
+	// squares of each piece type (indexed by the id of the type, see
+	// PiecesRepository).
+	private long[] occupancy = new long[BoardParameters.BITBOARD_WORDS];
+	private long[] redunits = new long[BoardParameters.BITBOARD_WORDS];
+	private long[] blackunits = new long[BoardParameters.BITBOARD_WORDS];
+	private long[][] typeunits = new long[0][];
+
+	// The Zobrist key of the units and the side to move.
+	private long pieceskey = 0;
+	private String sidetomove = MatchParameters.RED_COLOR;
+	private int sidetomoveid = MatchParameters.RED_ID;
+
+	// The sum of the values of the units of each color.
+	private int redscore = 0;
+	private int blackscore = 0;
+
+	/**
+	 * The undo stack of the moves made with makeMove(): for each move, the
+	 * origin and destination squares and the piece that was captured (null if
+	 * none). These arrays grow when needed and are never shrunk.
+	 */
+	private int[] undofrom = new int[64];
+	private int[] undoto = new int[64];
+	private Piece[] undocaptured = new Piece[64];
+	private int undocount = 0;
 
 	public Board() {
 		// TODO Auto-generated constructor stub
 	}
 
+	/**
+	 * Copy constructor, the units of the board are copied (see
+	 * {@link Piece#Piece(Piece)}) so that moves can be made on the copy
+	 * without changing the given board. The grounds are shared.
+	 * 
+	 * @param board
+	 */
+	public Board(Board board) {
+		this.environement = board.environement;
+		this.sidetomove = board.sidetomove;
+		this.sidetomoveid = board.sidetomoveid;
+		for (Piece piece : board.getPieces()) {
+			addPiece(new Piece(piece));
+		}
+	}
+
+	/**
+	 * @return the square index of the given position, or -1 if the position
+	 *         is out of the board.
+	 */
+	public static int square(int x, int y) {
+		if (x >= 0 && x < BoardParameters.BOARD_X_LENGTH && y >= 0 && y < BoardParameters.BOARD_Y_LENGTH) {
+			return x * BoardParameters.BOARD_Y_LENGTH + y;
+		} else {
+			return -1;
+		}
+	}
+
+	public static int squareX(int square) {
+		return square / BoardParameters.BOARD_Y_LENGTH;
+	}
+
+	public static int squareY(int square) {
+		return square % BoardParameters.BOARD_Y_LENGTH;
+	}
+
 	// This method is used to move pieces across the board
 	public void movePiece(Coordinates initial, Coordinates finality) {
-		Piece tomovepiece = units.get(initial);
+		int from = square(initial.getX(), initial.getY());
+		int to = square(finality.getX(), finality.getY());
+		Piece tomovepiece = units[from];
 		tomovepiece.setCoordonates(finality);
-		units.remove(initial);
-		units.put(finality, tomovepiece);
+		clear(from);
+		clear(to);
+		put(to, tomovepiece);
+		swapSide();
+	}
+
+	/**
+	 * This method makes a reversible move: the move is recorded on the undo
+	 * stack so that it can be taken back with unmakeMove(). Unlike
+	 * movePiece(), the coordinates of the moved piece are updated in place,
+	 * nothing is allocated.
+	 * 
+	 * @param from
+	 *            the square of the piece to move.
+	 * @param to
+	 *            the square where the piece goes, the piece standing there
+	 *            (if any) is captured.
+	 */
+	public void makeMove(int from, int to) {
+		if (undocount == undofrom.length) {
+			undofrom = Arrays.copyOf(undofrom, undocount * 2);
+			undoto = Arrays.copyOf(undoto, undocount * 2);
+			undocaptured = Arrays.copyOf(undocaptured, undocount * 2);
+		}
+
+		Piece tomovepiece = units[from];
+		undofrom[undocount] = from;
+		undoto[undocount] = to;
+		undocaptured[undocount] = units[to];
+		undocount++;
+
+		clear(to);
+		clear(from);
+		put(to, tomovepiece);
+		tomovepiece.setCoordonates(squareX(to), squareY(to));
+		swapSide();
+	}
+
+	public void makeMove(Coordinates initial, Coordinates finality) {
+		makeMove(square(initial.getX(), initial.getY()), square(finality.getX(), finality.getY()));
+	}
+
+	// This method takes back the last move made with makeMove().
+	public void unmakeMove() {
+		undocount--;
+		int from = undofrom[undocount];
+		int to = undoto[undocount];
+		Piece captured = undocaptured[undocount];
+		undocaptured[undocount] = null;
+
+		Piece movedpiece = units[to];
+		clear(to);
+		put(from, movedpiece);
+		movedpiece.setCoordonates(squareX(from), squareY(from));
+
+		if (captured != null) {
+			put(to, captured);
+		}
+		swapSide();
+	}
+
+	// Returns the piece captured by the last move made with makeMove().
+	public Piece getLastCaptured() {
+		return undocaptured[undocount - 1];
+	}
+
+	// Returns the number of moves that can be taken back.
+	public int getUndoCount() {
+		return undocount;
+	}
+
+	// Returns the Zobrist key of the position, side to move included.
+	public long getKey() {
+		return pieceskey ^ Zobrist.getSideKey(sidetomoveid);
+	}
+
+	/**
+	 * @return the Zobrist key of the units after the move from the square from
+	 *         to the square to, side to move excluded. The board is not
+	 *         changed.
+	 */
+	public long getMoveKey(int from, int to) {
+		Piece tomovepiece = units[from];
+		long movekey = pieceskey ^ Zobrist.getKey(tomovepiece, from) ^ Zobrist.getKey(tomovepiece, to);
+		if (units[to] != null) {
+			movekey ^= Zobrist.getKey(units[to], to);
+		}
+		return movekey;
+	}
+
+	public String getSideToMove() {
+		return sidetomove;
+	}
+
+	/**
+	 * @param color
+	 * @return the evaluation of the position from the point of view of the
+	 *         given color: the values of its units minus the values of the
+	 *         units of the other color.
+	 * @see Evaluation
+	 */
+	public int getScore(String color) {
+		if (color.equals(MatchParameters.RED_COLOR)) {
+			return redscore - blackscore;
+		} else {
+			return blackscore - redscore;
+		}
+	}
+
+	public void setSideToMove(String sidetomove) {
+		this.sidetomove = sidetomove;
+		this.sidetomoveid = MatchParameters.getColorId(sidetomove);
 	}
 
 	public Ground[][] getEnvironement() {
@@ -43,43 +234,162 @@ public class Board {
 
 	public void setEnvironement(Ground[][] environement) {
 		this.environement = environement;
+		evaluate();
 	}
 
+	/**
+	 * @return a snapshot of the units indexed by their coordinates, changing
+	 *         the returned map does not change the board.
+	 */
 	public HashMap<Coordinates, Piece> getUnits() {
-		return units;
+		HashMap<Coordinates, Piece> snapshot = new HashMap<Coordinates, Piece>();
+		for (Piece piece : getPieces()) {
+			snapshot.put(piece.getCoordonates(), piece);
+		}
+		return snapshot;
 	}
 
 	public void setUnits(HashMap<Coordinates, Piece> units) {
-		this.units = units;
+		clearUnits();
+		for (Piece piece : units.values()) {
+			addPiece(piece);
+		}
+	}
+
+	// Returns all the pieces on the board, in square order.
+	public ArrayList<Piece> getPieces() {
+		ArrayList<Piece> pieces = new ArrayList<Piece>();
+		for (int word = 0; word < BoardParameters.BITBOARD_WORDS; word++) {
+			long bits = occupancy[word];
+			while (bits != 0) {
+				pieces.add(units[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+				bits &= bits - 1;
+			}
+		}
+		return pieces;
+	}
+
+	// Returns the pieces of the given color, in square order.
+	public ArrayList<Piece> getPieces(String color) {
+		ArrayList<Piece> pieces = new ArrayList<Piece>();
+		long[] plane = getColorUnits(color);
+		for (int word = 0; word < BoardParameters.BITBOARD_WORDS; word++) {
+			long bits = plane[word];
+			while (bits != 0) {
+				pieces.add(units[(word << 6) + Long.numberOfTrailingZeros(bits)]);
+				bits &= bits - 1;
+			}
+		}
+		return pieces;
+	}
+
+	public void clearUnits() {
+		for (int square = 0; square < BoardParameters.BOARD_SQUARES; square++) {
+			units[square] = null;
+		}
+		for (int word = 0; word < BoardParameters.BITBOARD_WORDS; word++) {
+			occupancy[word] = 0;
+			redunits[word] = 0;
+			blackunits[word] = 0;
+		}
+		for (long[] plane : typeunits) {
+			if (plane != null) {
+				Arrays.fill(plane, 0);
+			}
+		}
+		Arrays.fill(undocaptured, null);
+		undocount = 0;
+		pieceskey = 0;
+		redscore = 0;
+		blackscore = 0;
+		sidetomove = MatchParameters.RED_COLOR;
+		sidetomoveid = MatchParameters.RED_ID;
 	}
 
 	public void addPiece(Piece piece) {
-		units.put(piece.getCoordonates(), piece);
+		int square = square(piece.getCoordonates().getX(), piece.getCoordonates().getY());
+		clear(square);
+		put(square, piece);
 	}
 
 	public void addGround(Coordinates coordonates, Ground ground) {
-		environement[coordonates.getX()][coordonates.getY()] = ground;
+		addGround(coordonates.getX(), coordonates.getY(), ground);
 	}
 
+	// Only the value of the unit of the square changes with its ground.
 	public void addGround(int x, int y, Ground ground) {
+		int square = square(x, y);
+		Piece piece = square != -1 ? units[square] : null;
+		if (piece != null) {
+			addScore(piece, square, -1);
+		}
 		environement[x][y] = ground;
+		if (piece != null) {
+			addScore(piece, square, 1);
+		}
 	}
 
 	public void removePiece(Coordinates coordonates) {
-		units.remove(coordonates);
+		int square = square(coordonates.getX(), coordonates.getY());
+		if (square != -1) {
+			clear(square);
+		}
 	}
 
 	public Piece getPiece(int x, int y) {
-		return units.get(new Coordinates(x, y));
+		int square = square(x, y);
+		if (square != -1) {
+			return units[square];
+		} else {
+			return null;
+		}
 	}
 
 	public Piece getPiece(Coordinates coordonates) {
-		if (coordonates.getX() >= 0 && coordonates.getX() < BoardParameters.BOARD_X_LENGTH && coordonates.getY() >= 0
-				&& coordonates.getY() < BoardParameters.BOARD_Y_LENGTH) {
-			return units.get(coordonates);
+		return getPiece(coordonates.getX(), coordonates.getY());
+	}
+
+	// The square must be on the board.
+	public Piece getPiece(int square) {
+		return units[square];
+	}
+
+	public boolean isOccupied(int square) {
+		return (occupancy[square >>> 6] & (1L << (square & 63))) != 0;
+	}
+
+	public long[] getOccupancy() {
+		return occupancy;
+	}
+
+	// Returns the bit plane of the units of the given color.
+	public long[] getColorUnits(String color) {
+		return getColorUnits(MatchParameters.getColorId(color));
+	}
+
+	// Returns the bit plane of the units of the color of the given id.
+	public long[] getColorUnits(int colorid) {
+		if (colorid == MatchParameters.RED_ID) {
+			return redunits;
 		} else {
-			return null;
+			return blackunits;
+		}
+	}
+
+	// Returns the bit plane of the units of the given type.
+	public long[] getTypeUnits(String type) {
+		return getTypeUnits(PiecesRepository.getInstance().getTypeId(type));
+	}
+
+	// Returns the bit plane of the units of the type of the given id.
+	public long[] getTypeUnits(int typeid) {
+		if (typeid >= typeunits.length) {
+			typeunits = Arrays.copyOf(typeunits, typeid + 1);
+		}
+		if (typeunits[typeid] == null) {
+			typeunits[typeid] = new long[BoardParameters.BITBOARD_WORDS];
 		}
+		return typeunits[typeid];
 	}
 
 	public Ground getGround(int x, int y) {
@@ -89,4 +399,64 @@ public class Board {
 	public Ground getGround(Coordinates coordonates) {
 		return environement[coordonates.getX()][coordonates.getY()];
 	}
+
+	// Places a piece on an empty square and updates the bit planes.
+	private void put(int square, Piece piece) {
+		long bit = 1L << (square & 63);
+		int word = square >>> 6;
+		units[square] = piece;
+		occupancy[word] |= bit;
+		getColorUnits(piece.getColorid())[word] |= bit;
+		getTypeUnits(piece.getTypeid())[word] |= bit;
+		pieceskey ^= Zobrist.getKey(piece, square);
+		addScore(piece, square, 1);
+	}
+
+	// Removes the piece standing on a square (if any) from the bit planes.
+	private void clear(int square) {
+		Piece piece = units[square];
+		if (piece != null) {
+			long bit = ~(1L << (square & 63));
+			int word = square >>> 6;
+			units[square] = null;
+			occupancy[word] &= bit;
+			getColorUnits(piece.getColorid())[word] &= bit;
+			getTypeUnits(piece.getTypeid())[word] &= bit;
+			pieceskey ^= Zobrist.getKey(piece, square);
+			addScore(piece, square, -1);
+		}
+	}
+
+	// Adding (sign 1) or removing (sign -1) the value of a unit to the score
+	// of its color.
+	private void addScore(Piece piece, int square, int sign) {
+		int value = sign * Evaluation.getValue(piece, square, environement[squareX(square)][squareY(square)]);
+		if (piece.getColorid() == MatchParameters.RED_ID) {
+			redscore += value;
+		} else {
+			blackscore += value;
+		}
+	}
+
+	// Computing the scores again, the grounds changed.
+	private void evaluate() {
+		redscore = 0;
+		blackscore = 0;
+		for (int square = 0; square < BoardParameters.BOARD_SQUARES; square++) {
+			if (units[square] != null) {
+				addScore(units[square], square, 1);
+			}
+		}
+	}
+
+	// The other player plays.
+	private void swapSide() {
+		if (sidetomoveid == MatchParameters.RED_ID) {
+			sidetomove = MatchParameters.BLACK_COLOR;
+			sidetomoveid = MatchParameters.BLACK_ID;
+		} else {
+			sidetomove = MatchParameters.RED_COLOR;
+			sidetomoveid = MatchParameters.RED_ID;
+		}
+	}
 }
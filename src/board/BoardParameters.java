@@ -12,4 +12,16 @@ public class BoardParameters {
 
 	public static final int BOARD_Y_LENGTH = 11;
 
+	/**
+	 * The number of slots of the board, each slot is referred to by its square
+	 * index: x * BOARD_Y_LENGTH + y.
+	 */
+	public static final int BOARD_SQUARES = BOARD_X_LENGTH * BOARD_Y_LENGTH;
+
+	/**
+	 * The number of longs needed to store one bit per square (bit planes used
+	 * by the {@link Board}).
+	 */
+	public static final int BITBOARD_WORDS = (BOARD_SQUARES + 63) / 64;
+
 }
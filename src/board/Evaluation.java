@@ -0,0 +1,101 @@
+package board;
+
+import board.components.Ground;
+import board.components.Piece;
+import board.components.PieceModel;
+import compiler.interpreters.PieceSettingsCompiler;
+import compiler.lang.Grammar;
+import intelligence.AlphaBetaSearch;
+import stats.MatchParameters;
+
+/**
+ * This class gives the value of a unit of the {@link Board} for the evaluation
+ * of a position: the weight of its {@link PieceModel} (WEIGHT_UNIT points per
+ * weight) plus the value of its square in the square table of its piece type
+ * for the ground of the square. A piece type may have a table per ground type
+ * (a chariot on sand, a cannon on a montain), the DEFAULT table is used on the
+ * other grounds, and no table counts 0.
+ *
+ * The tables are read by the {@link PieceSettingsCompiler} (see
+ * {@link Grammar#TAG_SQUARE_TABLE}), they are written from the side of RED:
+ * the value of a BLACK piece is read on the opposite square, the board being
+ * symmetrical.
+ *
+ * The board keeps the sum of the values of the units of each color and
+ * updates it every time a unit is put or removed, like its {@link Zobrist}
+ * key: the evaluation of a position is thus read without looking at the
+ * pieces.
+ *
+ * @see Board
+ * @see AlphaBetaSearch
+ * @author Dorian CHENET
+ *
+ */
+public class Evaluation {
+
+	// The points of a weight of 1.
+	public static final int WEIGHT_UNIT = 100;
+
+	private Evaluation() {
+
+	}
+
+	/**
+	 * @param piece
+	 * @param square
+	 *            the square of the piece.
+	 * @param ground
+	 *            the ground of the square, null for the default one.
+	 * @return the value of the piece on the square.
+	 */
+	public static int getValue(Piece piece, int square, Ground ground) {
+		int value = piece.getWeight() * WEIGHT_UNIT;
+
+		int[] table = piece.getSquaretable(ground != null ? ground.getId() : -1);
+		if (table != null) {
+			value += table[getTableSquare(piece.getColorid(), square)];
+		}
+
+		return value;
+	}
+
+	/**
+	 * @param color
+	 * @param square
+	 * @return the square of the tables for a piece of the color on the square.
+	 */
+	public static int getTableSquare(String color, int square) {
+		return getTableSquare(MatchParameters.getColorId(color), square);
+	}
+
+	// The same, the color given by its id.
+	public static int getTableSquare(int colorid, int square) {
+		if (colorid == MatchParameters.BLACK_ID) {
+			return BoardParameters.BOARD_SQUARES - 1 - square;
+		}
+		return square;
+	}
+
+	/**
+	 * @param values
+	 *            one value per rank (from the side of RED) or one value per
+	 *            square.
+	 * @return the square table, null if the number of values is wrong.
+	 */
+	public static int[] createTable(int[] values) {
+		int[] table = null;
+
+		if (values.length == BoardParameters.BOARD_SQUARES) {
+			table = values;
+		}
+
+		else if (values.length == BoardParameters.BOARD_X_LENGTH) {
+			table = new int[BoardParameters.BOARD_SQUARES];
+			for (int square = 0; square < table.length; square++) {
+				table[square] = values[Board.squareX(square)];
+			}
+		}
+
+		return table;
+	}
+}
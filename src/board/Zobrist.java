@@ -0,0 +1,68 @@
+package board;
+
+import board.components.Piece;
+import repositories.PiecesRepository;
+import stats.MatchParameters;
+
+/**
+ * This class contains the Zobrist keys used to identify a position of the
+ * {@link Board} with a 64 bits key. The key of a position is the xor of the
+ * keys of its units (piece type, color and square) and of the key of the side
+ * to move, so that it can be updated incrementally when a piece moves.
+ *
+ * The piece types are only known once the piece settings are compiled, so the
+ * keys are not stored in tables: they are derived from the id of the type
+ * (given by the {@link PiecesRepository}, two types never share it), the color
+ * and the square with the SplitMix64 mixing function. The keys are thus the
+ * same from a run to an other for the same piece settings and the class can be
+ * used by several threads.
+ *
+ * @see Board
+ * @author Dorian CHENET
+ *
+ */
+public class Zobrist {
+
+	// The key of the side to move, it is part of the key when BLACK plays.
+	public static final long BLACK_TO_MOVE = mix(0x5851F42D4C957F2DL);
+
+	private static final long COLOR_INCREMENT = 0xD1B54A32D192ED03L;
+
+	private Zobrist() {
+
+	}
+
+	public static long getKey(String type, String color, int square) {
+		return getKey(PiecesRepository.getInstance().getTypeId(type), MatchParameters.getColorId(color), square);
+	}
+
+	// The key of a unit, the type and the color given by their ids.
+	public static long getKey(int typeid, int colorid, int square) {
+		long seed = ((long) typeid << 32) ^ square;
+		if (colorid == MatchParameters.BLACK_ID) {
+			seed += COLOR_INCREMENT;
+		}
+		return mix(seed);
+	}
+
+	public static long getKey(Piece piece, int square) {
+		return getKey(piece.getTypeid(), piece.getColorid(), square);
+	}
+
+	// Returns the key of the side to move of the given color id.
+	public static long getSideKey(int colorid) {
+		if (colorid == MatchParameters.BLACK_ID) {
+			return BLACK_TO_MOVE;
+		} else {
+			return 0;
+		}
+	}
+
+	// The SplitMix64 mixing function.
+	private static long mix(long seed) {
+		long z = seed + 0x9E3779B97F4A7C15L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
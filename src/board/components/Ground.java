@@ -15,12 +15,16 @@ public class Ground {
 	private String name = DefaultSettings.UNDEFINED_STRING;
 	private File texture = DefaultSettings.DEFAULT_TEXTURE;
 
-	public Ground() {
+	// The id of the ground type, given by the GroundsRepository.
+	private int id = 0;
 
+	public Ground() {
+		this.id = GroundsRepository.getInstance().getGroundId(name);
 	}
 	
 	public Ground(String groundtype){
 		this.name = groundtype;
+		this.id = GroundsRepository.getInstance().getGroundId(groundtype);
 		this.texture = GroundsRepository.getInstance().getGround(groundtype).getTexture();
 		if(this.texture == null){
 			this.texture = DefaultSettings.DEFAULT_TEXTURE;
@@ -31,12 +35,17 @@ public class Ground {
 		super();
 		this.name = groundname;
 		this.texture = groundtexture;
+		this.id = GroundsRepository.getInstance().getGroundId(groundname);
 	}
 
 	public String getName() {
 		return name;
 	}
 
+	public int getId() {
+		return id;
+	}
+
 	public File getTexture() {
 		return texture;
 	}
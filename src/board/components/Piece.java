@@ -2,10 +2,12 @@ package board.components;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 
+import board.Board;
 import board.BoardParameters;
+import board.Evaluation;
 import compiler.lang.DefaultSettings;
-import compiler.lang.Grammar;
 import engine.MovementValidator;
 import engine.simulation.Simulation;
 import engine.visitor.RuleEvaluator;
@@ -16,7 +18,9 @@ import repositories.PiecesRepository;
 import rules.Rule;
 import stats.MatchParameters;
 import strategy.data.Coordinates;
+import strategy.data.GroundPaterns;
 import strategy.data.MovementPatern;
+import strategy.data.SquareList;
 
 /**
  * This class represents a playing piece, pieces are generated from
@@ -39,9 +43,15 @@ public class Piece {
 	// The piece type (ex: Soldier, General ...)
 	private String type = DefaultSettings.UNDEFINED_STRING;
 
+	// The id of the piece type, given by the PiecesRepository.
+	private int typeid = -1;
+
 	// The piece color (which player it belongs to, RED / BLACK).
 	private String color = DefaultSettings.UNDEFINED_STRING;
 
+	// The id of the color, see MatchParameters.
+	private int colorid = MatchParameters.NO_COLOR_ID;
+
 	// The curent coordonates of the piece
 	private Coordinates coordonates = new Coordinates();
 
@@ -51,6 +61,17 @@ public class Piece {
 	// A list of every positions where the piece can eat an other
 	private ArrayList<Coordinates> coveredzone = new ArrayList<Coordinates>();
 
+	/**
+	 * The possible moves and the covered zone as squares, filled by the
+	 * {@link MovementValidator} along with the lists of coordinates (or
+	 * instead of them, see {@link MovementValidator#setFillcoordinates}). Both
+	 * are cleared when the moves of the piece are generated again.
+	 * 
+	 * @see SquareList
+	 */
+	private SquareList possiblesquares = new SquareList();
+	private SquareList coveredsquares = new SquareList();
+
 	/**
 	 * A list of all the movement paterns relatives to the piece type, these
 	 * paterns are used to generate the possible moves.
@@ -68,6 +89,15 @@ public class Piece {
 	 */
 	private ArrayList<Rule> rules = new ArrayList<Rule>();
 
+	/**
+	 * The rules sorted by priority and the movement paterns sorted by ground,
+	 * shared with the {@link PieceModel}.
+	 * 
+	 * @see MovementValidator
+	 */
+	private Rule[] prioritylist = new Rule[0];
+	private GroundPaterns groundpaterns = GroundPaterns.NONE;
+
 	/**
 	 * This attribute tells whether the piece is the winning condition or not,
 	 * if it is, it's the piece that the player must defend. A piece holding a
@@ -75,8 +105,21 @@ public class Piece {
 	 */
 	private Boolean wincondition = false;
 
+	/**
+	 * The square tables of the piece type by ground type, shared with the
+	 * {@link PieceModel}.
+	 * 
+	 * @see Evaluation
+	 */
+	private HashMap<String, int[]> squaretables = new HashMap<String, int[]>();
+
+	// The square tables by ground id and the DEFAULT one, shared with the
+	// PieceModel.
+	private int[][] groundtables = new int[0][];
+	private int[] defaulttable = null;
+
 	public Piece() {
-		// TODO Auto-generated constructor stub
+		this.typeid = PiecesRepository.getInstance().getTypeId(type);
 	}
 
 	/**
@@ -98,7 +141,9 @@ public class Piece {
 
 			this.coordonates = coordonates;
 			this.color = color;
+			this.colorid = MatchParameters.getColorId(color);
 			this.type = type;
+			this.typeid = PiecesRepository.getInstance().getTypeId(type);
 
 			PieceModel model = null;
 
@@ -127,18 +172,21 @@ public class Piece {
 			this.weight = model.getWeight();
 
 			// Extracting the MovementPaterns
-			for (MovementPatern patern : model.getMovementpaterns()) {
-				if (patern.getTag().getColor().equals(color) || patern.getTag().getColor().equals(Grammar.MACRO_ALL)) {
-					this.movementpaterns.add(patern);
-				}
-			}
+			this.movementpaterns = PieceModel.selectPaterns(model.getMovementpaterns(), color);
+			this.groundpaterns = model.getGroundpaterns(colorid);
 
 			// Extracting the Rules
 			this.rules = model.getRules();
+			this.prioritylist = model.getPrioritylist();
 
 			// Extracting the winning condition attribute
 			this.wincondition = model.getWinningcondition();
 
+			// Extracting the square tables
+			this.squaretables = model.getSquaretables();
+			this.groundtables = model.getGroundtables();
+			this.defaulttable = model.getDefaulttable();
+
 		} catch (OutOfBoardException e) {
 			System.out.println(e);
 		} catch (UnknownColorException e) {
@@ -150,23 +198,31 @@ public class Piece {
 
 	/**
 	 * This Method is used to make copies of Pieces, this method is used to
-	 * duplicate Pieces easily.
+	 * duplicate Pieces easily. The copy shares the movement paterns and the
+	 * rules of the original piece (they never change after the compilation)
+	 * but has its own coordinates and its own possible moves and covered zone,
+	 * so that moving the copy does not affect the original piece.
 	 * 
 	 * @see Simulation
 	 * @param piece
 	 */
 	public Piece(Piece piece) {
 
-		this.coordonates = piece.getCoordonates();
+		this.coordonates = new Coordinates(piece.getCoordonates().getX(), piece.getCoordonates().getY());
 		this.color = piece.getColor();
+		this.colorid = piece.getColorid();
 		this.type = piece.getType();
+		this.typeid = piece.getTypeid();
 		this.texture = piece.getTexture();
 		this.weight = piece.getWeight();
 		this.movementpaterns = piece.getMovementpaterns();
+		this.groundpaterns = piece.getGroundpaterns();
 		this.rules = piece.getRules();
+		this.prioritylist = piece.getPrioritylist();
 		this.wincondition = piece.getWincondition();
-		this.possiblemoves = piece.getPossiblemoves();
-		this.coveredzone = piece.coveredzone;
+		this.squaretables = piece.getSquaretables();
+		this.groundtables = piece.groundtables;
+		this.defaulttable = piece.defaulttable;
 
 	}
 
@@ -182,6 +238,11 @@ public class Piece {
 		return coordonates;
 	}
 
+	// Returns the square of the piece (x * BOARD_Y_LENGTH + y).
+	public int getSquare() {
+		return Board.square(coordonates.getX(), coordonates.getY());
+	}
+
 	public void setCoordonates(Coordinates coordonates) {
 		try {
 			if (coordonates.getX() > BoardParameters.BOARD_X_LENGTH
@@ -211,6 +272,23 @@ public class Piece {
 		return wincondition;
 	}
 
+	public HashMap<String, int[]> getSquaretables() {
+		return squaretables;
+	}
+
+	/**
+	 * @param groundid
+	 *            the id of a ground, -1 for the default ground.
+	 * @return the square table of the piece on the ground, null if there is
+	 *         none.
+	 */
+	public int[] getSquaretable(int groundid) {
+		if (groundid >= 0 && groundid < groundtables.length) {
+			return groundtables[groundid];
+		}
+		return defaulttable;
+	}
+
 	public void setWincondition(Boolean wincondition) {
 		this.wincondition = wincondition;
 	}
@@ -231,10 +309,26 @@ public class Piece {
 		return type;
 	}
 
+	public int getTypeid() {
+		return typeid;
+	}
+
+	public int getColorid() {
+		return colorid;
+	}
+
 	public ArrayList<Coordinates> getPossiblemoves() {
 		return possiblemoves;
 	}
 
+	public SquareList getPossiblesquares() {
+		return possiblesquares;
+	}
+
+	public SquareList getCoveredsquares() {
+		return coveredsquares;
+	}
+
 	public ArrayList<MovementPatern> getMovementpaterns() {
 		return movementpaterns;
 	}
@@ -243,8 +337,17 @@ public class Piece {
 		return rules;
 	}
 
+	public Rule[] getPrioritylist() {
+		return prioritylist;
+	}
+
+	public GroundPaterns getGroundpaterns() {
+		return groundpaterns;
+	}
+
 	public void setRules(ArrayList<Rule> rules) {
 		this.rules = rules;
+		this.prioritylist = PieceModel.buildPriorityList(rules);
 	}
 
 	public void setTexture(File texture) {
@@ -257,10 +360,12 @@ public class Piece {
 
 	public void setType(String type) {
 		this.type = type;
+		this.typeid = PiecesRepository.getInstance().getTypeId(type);
 	}
 
 	public void setColor(String color) {
 		this.color = color;
+		this.colorid = MatchParameters.getColorId(color);
 	}
 
 	public void setPossiblemoves(ArrayList<Coordinates> possiblemoves) {
@@ -269,6 +374,7 @@ public class Piece {
 
 	public void setMovementpaterns(ArrayList<MovementPatern> movementpatern) {
 		this.movementpaterns = movementpatern;
+		this.groundpaterns = new GroundPaterns(movementpatern);
 	}
 
 	@Override
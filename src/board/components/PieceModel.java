@@ -2,9 +2,18 @@ package board.components;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashMap;
 
+import board.Evaluation;
 import compiler.lang.DefaultSettings;
+import compiler.lang.Grammar;
+import compiler.lang.RuleGrammar;
+import engine.MovementValidator;
+import repositories.GroundsRepository;
+import repositories.PiecesRepository;
 import rules.Rule;
+import stats.MatchParameters;
+import strategy.data.GroundPaterns;
 import strategy.data.MovementPatern;
 
 /**
@@ -49,6 +58,31 @@ public class PieceModel {
 	//The winning condition
 	private Boolean winningcondition = false;
 
+	/**
+	 * The square tables of the piece type by ground type (the DEFAULT table
+	 * is used on the grounds without a table), the values are added to the
+	 * weight of the piece by the {@link Evaluation}.
+	 * @see Evaluation
+	 */
+	private HashMap<String, int[]> squaretables = new HashMap<String, int[]>();
+
+	/**
+	 * The same square tables by ground id (see {@link GroundsRepository}), the
+	 * grounds without a table holding the DEFAULT one, read by the
+	 * {@link Evaluation} at every move.
+	 */
+	private int[][] groundtables = new int[0][];
+	private int[] defaulttable = null;
+
+	/**
+	 * The rules sorted by priority and, for each color id, the movement
+	 * paterns sorted by ground, built by compile() when the model is
+	 * registered. They are shared by the pieces of the type.
+	 * @see MovementValidator
+	 */
+	private Rule[] prioritylist = new Rule[0];
+	private GroundPaterns[] groundpaterns = new GroundPaterns[2];
+
 	public PieceModel() {
 
 	}
@@ -121,6 +155,102 @@ public class PieceModel {
 		this.blacktexture = blacktexture;
 	}
 
+	/**
+	 * Building the priority list and the paterns of each color, called by the
+	 * {@link PiecesRepository} once the model is complete.
+	 */
+	public void compile() {
+		prioritylist = buildPriorityList(rules);
+		groundpaterns[MatchParameters.RED_ID] = new GroundPaterns(
+				selectPaterns(movementpaterns, MatchParameters.RED_COLOR));
+		groundpaterns[MatchParameters.BLACK_ID] = new GroundPaterns(
+				selectPaterns(movementpaterns, MatchParameters.BLACK_COLOR));
+	}
+
+	/**
+	 * The priority list is build using the priority values contained in the
+	 * different {@link Rule}. The list contains the Rules with the highest
+	 * priority at its head so that they are validated first.
+	 * 
+	 * @see RuleGrammar
+	 * @param rules
+	 * @return the rules sorted according to their priority
+	 */
+	public static Rule[] buildPriorityList(ArrayList<Rule> rules) {
+		ArrayList<Rule> prioritylist = new ArrayList<Rule>();
+
+		for (int priority : RuleGrammar.PRIORITY_LIST) {
+			for (Rule rule : rules) {
+				if (rule.getEvalutaionpriority() == priority) {
+					prioritylist.add(rule);
+				}
+			}
+		}
+
+		return prioritylist.toArray(new Rule[prioritylist.size()]);
+	}
+
+	/**
+	 * @param paterns
+	 * @param color
+	 * @return the paterns tagged with the color or with ALL.
+	 */
+	public static ArrayList<MovementPatern> selectPaterns(ArrayList<MovementPatern> paterns, String color) {
+		ArrayList<MovementPatern> paternslist = new ArrayList<MovementPatern>();
+		for (MovementPatern patern : paterns) {
+			if (patern.getTag().getColor().equals(color) || patern.getTag().getColor().equals(Grammar.MACRO_ALL)) {
+				paternslist.add(patern);
+			}
+		}
+		return paternslist;
+	}
+
+	public Rule[] getPrioritylist() {
+		return prioritylist;
+	}
+
+	// The paterns of the pieces of the color of the given id.
+	public GroundPaterns getGroundpaterns(int colorid) {
+		return groundpaterns[colorid];
+	}
+
+	public HashMap<String, int[]> getSquaretables() {
+		return squaretables;
+	}
+
+	public void setSquaretables(HashMap<String, int[]> squaretables) {
+		this.squaretables = squaretables;
+		buildGroundtables();
+	}
+
+	// Indexing the square tables by ground id.
+	private void buildGroundtables() {
+		defaulttable = squaretables.get(Grammar.DEFAULT_GROUND);
+
+		// Every ground with a table gets its id here, a ground named later
+		// has no table.
+		int grounds = 0;
+		for (String ground : squaretables.keySet()) {
+			grounds = Math.max(grounds, GroundsRepository.getInstance().getGroundId(ground) + 1);
+		}
+
+		groundtables = new int[grounds][];
+		for (int groundid = 0; groundid < grounds; groundid++) {
+			groundtables[groundid] = defaulttable;
+		}
+		for (String ground : squaretables.keySet()) {
+			groundtables[GroundsRepository.getInstance().getGroundId(ground)] = squaretables.get(ground);
+		}
+	}
+
+	public int[][] getGroundtables() {
+		return groundtables;
+	}
+
+	public int[] getDefaulttable() {
+		return defaulttable;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
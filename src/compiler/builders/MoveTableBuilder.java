@@ -0,0 +1,70 @@
+package compiler.builders;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+
+import board.Board;
+import board.BoardParameters;
+import compiler.interpreters.PieceSettingsCompiler;
+import strategy.data.Coordinates;
+import strategy.data.MoveTable;
+import strategy.data.MovementPatern;
+
+/**
+ * This treatment class compiles a {@link MovementPatern} into a
+ * {@link MoveTable}. It is used in {@link PieceSettingsCompiler} once the
+ * movement paterns of a piece type are built: every path of the patern is
+ * applied from every square of the board and turned into an array of squares.
+ * 
+ * @see MoveTable
+ * @see MovementPatern
+ * @see PieceSettingsCompiler
+ * @author Dorian CHENET
+ *
+ */
+public class MoveTableBuilder {
+
+	public MoveTableBuilder() {
+
+	}
+
+	public MoveTable buildMoveTable(MovementPatern patern) {
+		MoveTable table = new MoveTable();
+
+		for (int x = 0; x < BoardParameters.BOARD_X_LENGTH; x++) {
+			for (int y = 0; y < BoardParameters.BOARD_Y_LENGTH; y++) {
+				ArrayList<int[]> originpaths = new ArrayList<int[]>();
+
+				for (LinkedList<Coordinates> path : patern.getPathlist()) {
+					if (!path.isEmpty()) {
+						int[] compiledpath = compilePath(x, y, path);
+
+						// Paths ending out of the board are never valid.
+						if (compiledpath[compiledpath.length - 1] != MoveTable.OFF_BOARD) {
+							originpaths.add(compiledpath);
+						}
+					}
+				}
+
+				table.setPaths(Board.square(x, y), originpaths.toArray(new int[originpaths.size()][]));
+			}
+		}
+
+		return table;
+	}
+
+	// Applies the increments of the path from the position x, y.
+	private int[] compilePath(int x, int y, LinkedList<Coordinates> path) {
+		int[] compiledpath = new int[path.size()];
+		int index = 0;
+
+		for (Coordinates increment : path) {
+			x += increment.getX();
+			y += increment.getY();
+			compiledpath[index] = Board.square(x, y);
+			index++;
+		}
+
+		return compiledpath;
+	}
+}
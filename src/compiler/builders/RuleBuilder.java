@@ -68,6 +68,8 @@ public class RuleBuilder {
 		}
 
 		if (newrule != null && rulelist.size() == 0) {
+			// The rule is compiled once read, not during the first game.
+			newrule.getPredicate();
 			rulelist.add(newrule);
 		}
 
@@ -18,6 +18,7 @@ import compiler.lang.Grammar;
 import repositories.GroundsRepository;
 import repositories.PiecesRepository;
 import stats.Match;
+import stats.MatchContext;
 import stats.MatchParameters;
 import strategy.data.Coordinates;
 import test.io.InOutParameters;
@@ -31,8 +32,9 @@ import test.io.InOutParameters;
  * {@link PieceSettingsCompiler}) to create the playing board. This compiler
  * understands the {@link Grammar} and the {@link BoardGrammar}, which contains
  * the world generation functions and landmarks. The data gathered is used to
- * fill the "environment" and "units" arrays of the playing board {@link Match},
- * {@link Board}.
+ * fill the "environment" and "units" arrays of the playing board {@link Board}
+ * of a match {@link MatchContext}, the match of the game window {@link Match}
+ * by default.
  * 
  * @author Dorian CHENET
  *
@@ -57,8 +59,16 @@ public class BoardSettingsCompiler {
 
 	private String section = "";
 
+	// The match whose board and players are initialized.
+	private MatchContext context = null;
+
 	public BoardSettingsCompiler() {
 		// TODO Auto-generated constructor stub
+		this.context = Match.getInstance();
+	}
+
+	public BoardSettingsCompiler(MatchContext context) {
+		this.context = context;
 	}
 
 	public void loadSettings(String filename) {
@@ -234,11 +244,11 @@ public class BoardSettingsCompiler {
 		if (line.equals(Grammar.BALISE_END)) {
 
 			if (section.equals(BoardGrammar.BALISE_GROUND_SECTION)) {
-				Match.getBoard().setEnvironement(environement);
+				context.getBoard().setEnvironement(environement);
 			}
 
 			else if (section.equals(BoardGrammar.BALISE_PIECE_SECTION)) {
-				Match.getBoard().setUnits(units);
+				context.getBoard().setUnits(units);
 			}
 		}
 
@@ -247,9 +257,9 @@ public class BoardSettingsCompiler {
 
 	private void addPieceToPlayer(String color, Piece piece) {
 		if (piece.getWincondition()) {
-			Match.getInstance().getColorPlayer(color).setWinconditionpiece(piece);
+			context.getColorPlayer(color).setWinconditionpiece(piece);
 		} else {
-			Match.getInstance().getColorPlayer(color).getPieces().add(piece);
+			context.getColorPlayer(color).getPieces().add(piece);
 		}
 	}
 
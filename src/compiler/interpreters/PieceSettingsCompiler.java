@@ -6,10 +6,13 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 
+import board.Evaluation;
 import board.components.Piece;
 import board.components.PieceModel;
+import compiler.builders.MoveTableBuilder;
 import compiler.builders.MovementPaternBuilder;
 import compiler.builders.PathBuilder;
 import compiler.builders.RuleBuilder;
@@ -28,6 +31,7 @@ import repositories.GroundsRepository;
 import repositories.PiecesRepository;
 import rules.BaseRules;
 import rules.Rule;
+import strategy.data.MoveTable;
 import strategy.data.MovementPatern;
 import strategy.data.TaggedPath;
 import test.io.InOutParameters;
@@ -41,7 +45,8 @@ import test.io.InOutParameters;
  * in {@link PiecesRepository} to ease the creation of {@link Piece} objects.
  * This compiler understands the {@link Grammar}. More specifically, it creates
  * sets of {@link TaggedPath} which are then regrouped in {@link MovementPatern}
- * by the {@link MovementPaternBuilder}. It also creates the {@link Rule} using
+ * by the {@link MovementPaternBuilder} and compiled into {@link MoveTable} by
+ * the {@link MoveTableBuilder}. It also creates the {@link Rule} using
  * the {@link RuleBuilder}, these rules are then associated to the right
  * {@link PieceModel}.
  * 
@@ -58,6 +63,7 @@ public class PieceSettingsCompiler {
 	private ArrayList<MovementPatern> paternlist = new ArrayList<MovementPatern>();
 	private ArrayList<TaggedPath> pathlist = new ArrayList<TaggedPath>();
 	private ArrayList<Rule> rulelist = new ArrayList<Rule>();
+	private HashMap<String, int[]> squaretables = new HashMap<String, int[]>();
 
 	private ArrayList<String> precompilationpiecetypes = new ArrayList<String>();
 
@@ -141,8 +147,10 @@ public class PieceSettingsCompiler {
 
 				else if (line.equals(Grammar.BALISE_END)) {
 					createMovementPaterns();
-					registerPiece();
+					// The rules are complete when the model is registered,
+					// it sorts them by priority.
 					compleateRules();
+					registerPiece();
 					completeReset();
 				}
 
@@ -191,6 +199,10 @@ public class PieceSettingsCompiler {
 			}
 		}
 
+		else if (datasplit.length == 2 && datasplit[0].equals(Grammar.TAG_SQUARE_TABLE)) {
+			createSquareTable(datasplit[1]);
+		}
+
 		else if (datasplit.length == 2 && isConstant(datasplit[1])) {
 			weight = Integer.parseInt(datasplit[1]);
 		}
@@ -200,10 +212,48 @@ public class PieceSettingsCompiler {
 		}
 	}
 
+	/**
+	 * The square table applies to the ground of the current section, the
+	 * DEFAULT table is given before the first section or in the DEFAULT
+	 * section.
+	 * 
+	 * @see Evaluation
+	 */
+	private void createSquareTable(String data) throws StrayTextException {
+		String valuesplit[] = data.split(Grammar.SEPARATOR_COORDONATES);
+		int[] values = new int[valuesplit.length];
+
+		for (int index = 0; index < valuesplit.length; index++) {
+			if (!isConstant(valuesplit[index].trim())) {
+				throw new StrayTextException(linenumber);
+			}
+			values[index] = Integer.parseInt(valuesplit[index].trim());
+		}
+
+		int[] table = Evaluation.createTable(values);
+		if (table == null) {
+			throw new StrayTextException(linenumber);
+		}
+
+		if (groundtype.equals(DefaultSettings.UNDEFINED_STRING)) {
+			squaretables.put(Grammar.DEFAULT_GROUND, table);
+		} else {
+			squaretables.put(groundtype, table);
+		}
+	}
+
 	private void createMovementPaterns() {
 		MovementPaternBuilder mpb = new MovementPaternBuilder();
+		MoveTableBuilder mtb = new MoveTableBuilder();
 		try {
 			paternlist = mpb.buildMovementPaternList(pathlist);
+
+			// Compiling the paths of every patern into move tables.
+			if (paternlist != null) {
+				for (MovementPatern patern : paternlist) {
+					patern.setMovetable(mtb.buildMoveTable(patern));
+				}
+			}
 		} catch (UndeclaredDefaultMovementsException e) {
 			// TODO Auto-generated catch block
 			e.printStackTrace();
@@ -289,8 +339,10 @@ public class PieceSettingsCompiler {
 	private void registerPiece() {
 		if (paternlist.size() > 0 && !piecetype.equals("UNDEFINED") && !(weight == 0) && redtexture != null
 				&& blacktexture != null) {
-			PiecesRepository.getInstance().register(new PieceModel(piecetype, weight, paternlist, rulelist, redtexture,
-					blacktexture, winningcondition));
+			PieceModel model = new PieceModel(piecetype, weight, paternlist, rulelist, redtexture, blacktexture,
+					winningcondition);
+			model.setSquaretables(squaretables);
+			PiecesRepository.getInstance().register(model);
 		}
 	}
 
@@ -298,6 +350,7 @@ public class PieceSettingsCompiler {
 		paternlist = new ArrayList<MovementPatern>();
 		pathlist = new ArrayList<TaggedPath>();
 		rulelist = new ArrayList<Rule>();
+		squaretables = new HashMap<String, int[]>();
 		piecetype = DefaultSettings.UNDEFINED_STRING;
 		groundtype = DefaultSettings.UNDEFINED_STRING;
 		redtexture = DefaultSettings.DEFAULT_TEXTURE;
@@ -1,6 +1,7 @@
 package compiler.lang;
 
 import board.Board;
+import board.Evaluation;
 import board.components.Ground;
 import board.components.Piece;
 import compiler.builders.MovementPaternBuilder;
@@ -149,6 +150,16 @@ public class Grammar {
 	 */
 	public static final String TAG_WEIGHT = "weight";
 
+	/**
+	 * This balise indicates that the following tokens are the values of the
+	 * square table of a {@link Piece} on the ground of the current section:
+	 * one value per rank or one value per square, from the side of the
+	 * player.
+	 * 
+	 * @see Evaluation
+	 */
+	public static final String TAG_SQUARE_TABLE = "squaretable";
+
 	/**
 	 * These tokens indicate that the following tokens are the paths to the red
 	 * / black textures of a {@link Piece}.
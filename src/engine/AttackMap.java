@@ -0,0 +1,381 @@
+package engine;
+
+import java.util.Arrays;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import engine.simulation.Simulation;
+import rules.AlignmentPredicate;
+import rules.PieceTypeAlignmentRule;
+import rules.Rule;
+import stats.MatchParameters;
+import strategy.data.MoveTable;
+import strategy.data.MovementPatern;
+import strategy.data.SquareList;
+
+/**
+ * The attack map keeps the covered zone of the pieces of one color on a
+ * {@link Board} (the squares where they can eat a piece) and whether they put
+ * the enemy player in check. It is built once with reset(), then it is updated
+ * after every move made on the board.
+ *
+ * The moves of a piece only depend on the squares crossed by the paths of its
+ * {@link MoveTable} (its reach), so after a move only the pieces whose reach
+ * contains the origin or the destination square of the move are evaluated
+ * again by the {@link MovementValidator}. The pieces holding a winning
+ * condition and the pieces with a {@link PieceTypeAlignmentRule} naming piece
+ * types (which looks out of the paths) are evaluated again after every move;
+ * the pieces holding a winning condition are evaluated last, as in
+ * {@link MainEngine}, so that the covered zone of the other pieces is known.
+ *
+ * The changes made by update() are logged, undo() takes them back when the
+ * move is taken back on the board without evaluating any piece.
+ *
+ * The board must be a private copy: the possible moves and the covered zones
+ * of its pieces are overwritten.
+ *
+ * @see MovementValidator
+ * @see Simulation
+ * @see MoveGenerator
+ * @author Dorian CHENET
+ *
+ */
+public class AttackMap {
+
+	private static final int SQUARES = BoardParameters.BOARD_SQUARES;
+	private static final int WORDS = BoardParameters.BITBOARD_WORDS;
+
+	private Board board = null;
+
+	// The color of the pieces whose covered zone is kept, and its id.
+	private String color = null;
+	private int colorid = MatchParameters.NO_COLOR_ID;
+
+	// The validator holds the covered zone, it is only used by this map.
+	private MovementValidator mvalidator = null;
+
+	/**
+	 * For each square: whether a piece was evaluated on the square, the
+	 * squares the piece covers, whether it checks the enemy player, whether it
+	 * is evaluated after every move and its reach (WORDS longs per square).
+	 * The lists of squares are reused so that updating the map does not
+	 * allocate anything.
+	 */
+	private boolean[] evaluated = new boolean[SQUARES];
+	private SquareList[] covered = new SquareList[SQUARES];
+	private boolean[] checking = new boolean[SQUARES];
+	private boolean[] everymove = new boolean[SQUARES];
+	private long[] reaches = new long[SQUARES * WORDS];
+
+	// The number of pieces checking the enemy player.
+	private int checkers = 0;
+
+	// The squares of the pieces to evaluate again after a move.
+	private int[] dirty = new int[SQUARES];
+
+	/**
+	 * The undo log: for each change made by update(), the square, whether the
+	 * piece of the square was evaluated (added) or removed and, for the
+	 * removed pieces, their entry. The log of each update starts at a mark.
+	 */
+	private int[] undosquares = new int[64];
+	private boolean[] undoadded = new boolean[64];
+	private SquareList[] undocovered = new SquareList[64];
+	private boolean[] undochecking = new boolean[64];
+	private boolean[] undoeverymove = new boolean[64];
+	private long[] undoreaches = new long[64 * WORDS];
+	private int undocount = 0;
+
+	private int[] undomarks = new int[16];
+	private int undomarkcount = 0;
+
+	public AttackMap(Board board) {
+		this.board = board;
+		this.mvalidator = new MovementValidator(board);
+		this.mvalidator.setFillcoordinates(false);
+
+		for (int square = 0; square < SQUARES; square++) {
+			covered[square] = new SquareList();
+		}
+		for (int index = 0; index < undocovered.length; index++) {
+			undocovered[index] = new SquareList();
+		}
+	}
+
+	/**
+	 * Evaluating all the pieces of the given color.
+	 *
+	 * @param color
+	 */
+	public void reset(String color) {
+		this.color = color;
+		this.colorid = MatchParameters.getColorId(color);
+		mvalidator.clearCoveredZone();
+		checkers = 0;
+		undocount = 0;
+		undomarkcount = 0;
+
+		int count = 0;
+		for (int square = 0; square < SQUARES; square++) {
+			evaluated[square] = false;
+			if (isKept(square)) {
+				dirty[count] = square;
+				count++;
+			}
+		}
+
+		evaluate(count);
+	}
+
+	/**
+	 * Updating the map after a move was made on the board.
+	 *
+	 * @param from
+	 *            the origin square of the move.
+	 * @param to
+	 *            the destination square of the move.
+	 */
+	public void update(int from, int to) {
+		int count = 0;
+
+		if (undomarkcount == undomarks.length) {
+			undomarks = Arrays.copyOf(undomarks, undomarkcount * 2);
+		}
+		undomarks[undomarkcount] = undocount;
+		undomarkcount++;
+
+		for (int square = 0; square < SQUARES; square++) {
+			if (evaluated[square] && square != from && square != to
+					&& (everymove[square] || reaches(square, from) || reaches(square, to))) {
+				log(square, false);
+				remove(square);
+				dirty[count] = square;
+				count++;
+			}
+		}
+
+		// The pieces which left the origin and the destination squares are
+		// removed, the pieces standing on them now are evaluated.
+		count = replace(from, count);
+		count = replace(to, count);
+
+		evaluate(count);
+	}
+
+	/**
+	 * Taking back the last update, after the move was taken back on the
+	 * board.
+	 */
+	public void undo() {
+		undomarkcount--;
+		int mark = undomarks[undomarkcount];
+
+		while (undocount > mark) {
+			undocount--;
+			int square = undosquares[undocount];
+
+			if (undoadded[undocount]) {
+				remove(square);
+			} else {
+				evaluated[square] = true;
+				covered[square].clear();
+				covered[square].addAll(undocovered[undocount]);
+				checking[square] = undochecking[undocount];
+				everymove[square] = undoeverymove[undocount];
+				System.arraycopy(undoreaches, undocount * WORDS, reaches, square * WORDS, WORDS);
+				for (int index = 0; index < covered[square].size(); index++) {
+					mvalidator.addCovered(covered[square].get(index));
+				}
+				if (checking[square]) {
+					checkers++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param square
+	 * @return true if a piece of the color of the map can eat a piece on the
+	 *         square.
+	 */
+	public Boolean isAttacked(int square) {
+		return mvalidator.isCovered(square);
+	}
+
+	/**
+	 * @param square
+	 *            a square holding a piece of the other color: a piece
+	 *            covering it can take it.
+	 * @return the square of the piece of the color of the map of least weight
+	 *         which can take the piece on the square, MoveTable.OFF_BOARD if
+	 *         there is none.
+	 */
+	public int getLeastValuableAttacker(int square) {
+		int attacker = MoveTable.OFF_BOARD;
+
+		// A check is not counted in the covered zone of the validator.
+		if (mvalidator.isCovered(square) || checkers > 0) {
+			for (int candidate = 0; candidate < SQUARES; candidate++) {
+				if (evaluated[candidate] && covered[candidate].contains(square) && (attacker == MoveTable.OFF_BOARD
+						|| board.getPiece(candidate).getWeight() < board.getPiece(attacker).getWeight())) {
+					attacker = candidate;
+				}
+			}
+		}
+		return attacker;
+	}
+
+	/**
+	 * @return true if a piece of the color of the map puts the enemy player in
+	 *         check.
+	 */
+	public Boolean isChecking() {
+		return checkers > 0;
+	}
+
+	public String getColor() {
+		return color;
+	}
+
+	public Board getBoard() {
+		return board;
+	}
+
+	// Evaluating the pieces of the first count dirty squares, the pieces
+	// holding a winning condition last.
+	private void evaluate(int count) {
+		for (int index = 0; index < count; index++) {
+			if (!board.getPiece(dirty[index]).getWincondition()) {
+				scan(dirty[index]);
+			}
+		}
+		for (int index = 0; index < count; index++) {
+			if (board.getPiece(dirty[index]).getWincondition()) {
+				scan(dirty[index]);
+			}
+		}
+	}
+
+	private void scan(int square) {
+		if (undomarkcount > 0) {
+			log(square, true);
+		}
+		Piece piece = board.getPiece(square);
+		checking[square] = mvalidator.generatePieceMovements(piece);
+		evaluated[square] = true;
+		covered[square].clear();
+		covered[square].addAll(mvalidator.getLastCovered());
+		if (checking[square]) {
+			checkers++;
+		}
+
+		everymove[square] = piece.getWincondition() || looksOutOfPaths(piece);
+
+		int offset = square * WORDS;
+		for (int word = 0; word < WORDS; word++) {
+			reaches[offset + word] = 0;
+		}
+		addReach(piece, square, reaches, offset);
+	}
+
+	/**
+	 * Adding the reach of a piece, the union of the reaches of its paterns, to
+	 * a bit plane.
+	 *
+	 * @param piece
+	 * @param square
+	 *            the square of the piece.
+	 * @param reach
+	 *            the bit plane.
+	 * @param offset
+	 *            the index of the first word of the bit plane in the array.
+	 */
+	static void addReach(Piece piece, int square, long[] reach, int offset) {
+		for (MovementPatern patern : piece.getMovementpaterns()) {
+			long[] paternreach = patern.getMovetable().getReach(square);
+			for (int word = 0; word < WORDS; word++) {
+				reach[offset + word] |= paternreach[word];
+			}
+		}
+	}
+
+	/**
+	 * @param piece
+	 * @return true if the piece has a {@link PieceTypeAlignmentRule} naming
+	 *         piece types, which looks at squares out of its paths. The
+	 *         default alignment rule (NONE) does not look at the board, it is
+	 *         compiled into a constant.
+	 */
+	static boolean looksOutOfPaths(Piece piece) {
+		for (Rule rule : piece.getRules()) {
+			if (rule.getPredicate() instanceof AlignmentPredicate) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// Removing the piece evaluated on a square of the move, the piece now
+	// standing on it is added to the dirty squares.
+	private int replace(int square, int count) {
+		if (evaluated[square]) {
+			log(square, false);
+			remove(square);
+		}
+		if (isKept(square)) {
+			dirty[count] = square;
+			count++;
+		}
+		return count;
+	}
+
+	// Logging a change of the entry of a square before it is made.
+	private void log(int square, boolean added) {
+		if (undocount == undosquares.length) {
+			int size = undocount * 2;
+			undosquares = Arrays.copyOf(undosquares, size);
+			undoadded = Arrays.copyOf(undoadded, size);
+			undocovered = Arrays.copyOf(undocovered, size);
+			for (int index = undocount; index < size; index++) {
+				undocovered[index] = new SquareList();
+			}
+			undochecking = Arrays.copyOf(undochecking, size);
+			undoeverymove = Arrays.copyOf(undoeverymove, size);
+			undoreaches = Arrays.copyOf(undoreaches, size * WORDS);
+		}
+
+		undosquares[undocount] = square;
+		undoadded[undocount] = added;
+		if (!added) {
+			undocovered[undocount].clear();
+			undocovered[undocount].addAll(covered[square]);
+			undochecking[undocount] = checking[square];
+			undoeverymove[undocount] = everymove[square];
+			System.arraycopy(reaches, square * WORDS, undoreaches, undocount * WORDS, WORDS);
+		}
+		undocount++;
+	}
+
+	private void remove(int square) {
+		for (int index = 0; index < covered[square].size(); index++) {
+			mvalidator.removeCovered(covered[square].get(index));
+		}
+		if (checking[square]) {
+			checkers--;
+		}
+		evaluated[square] = false;
+	}
+
+	// True if the square holds a piece of the color of the map.
+	private boolean isKept(int square) {
+		Piece piece = board.getPiece(square);
+		return piece != null && piece.getColorid() == colorid;
+	}
+
+	// True if the reach of the piece evaluated on the square contains the
+	// target square.
+	private boolean reaches(int square, int target) {
+		return (reaches[square * WORDS + (target >> 6)] & (1L << target)) != 0;
+	}
+}
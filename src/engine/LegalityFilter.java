@@ -0,0 +1,135 @@
+package engine;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import engine.simulation.Simulation;
+import rules.JumpRule;
+import rules.PieceTypeAlignmentRule;
+import strategy.data.MoveTable;
+
+/**
+ * The legality filter tells, once per position, which moves of a player
+ * cannot leave him in check, so that they do not have to be simulated.
+ *
+ * A piece of the opponent can only check from where it stands if the square
+ * of the winning condition piece is in its reach (the squares crossed by the
+ * paths of its {@link MoveTable}), and its moves only change when a square of
+ * its reach changes. The squares in the reach of these pieces are the check
+ * rays: they hold the pinned pieces and the screens of the {@link JumpRule}
+ * (a piece moving into a ray may be the screen of a cannon). A move which
+ * leaves and reaches squares out of the check rays cannot give a check to the
+ * player.
+ *
+ * The moves of the winning condition piece, the moves of a player in check
+ * and the moves when an opponent with a {@link PieceTypeAlignmentRule} naming
+ * piece types (which looks out of its paths, like the generals which cannot
+ * face each other) can reach the winning condition piece are not known, they
+ * must be simulated.
+ *
+ * @see Simulation
+ * @see MainEngine
+ * @see MoveGenerator
+ * @see AttackMap
+ * @author Dorian CHENET
+ *
+ */
+public class LegalityFilter {
+
+	private static final int WORDS = BoardParameters.BITBOARD_WORDS;
+
+	// The squares in the reach of the pieces of the opponent which can reach
+	// the winning condition piece.
+	private long[] checkrays = new long[WORDS];
+
+	// The reach of a piece of the opponent.
+	private long[] reach = new long[WORDS];
+
+	// The square of the winning condition piece of the player.
+	private int wincondition = MoveTable.OFF_BOARD;
+
+	// False when every move must be simulated.
+	private Boolean enabled = false;
+
+	public LegalityFilter() {
+
+	}
+
+	/**
+	 * Computing the check rays of a position.
+	 *
+	 * @param board
+	 * @param color
+	 *            the color of the player whose moves are filtered.
+	 * @param checked
+	 *            true if the player is in check.
+	 */
+	public void reset(Board board, String color, Boolean checked) {
+		enabled = !checked;
+		wincondition = MoveTable.OFF_BOARD;
+		for (int word = 0; word < WORDS; word++) {
+			checkrays[word] = 0;
+		}
+
+		long[] plane = board.getColorUnits(color);
+		for (int word = 0; word < WORDS; word++) {
+			long bits = plane[word];
+			while (bits != 0) {
+				int square = (word << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				if (board.getPiece(square).getWincondition()) {
+					wincondition = square;
+				}
+			}
+		}
+
+		if (wincondition == MoveTable.OFF_BOARD) {
+			enabled = false;
+		}
+
+		// The pieces of the opponent are read from the bit plane of its color.
+		plane = board.getColorUnits(MoveGenerator.opponentColor(color));
+		for (int word = 0; word < WORDS && enabled; word++) {
+			long bits = plane[word];
+			while (bits != 0) {
+				int square = (word << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				addCheckRay(board.getPiece(square), square);
+			}
+		}
+	}
+
+	// Adding the reach of a piece of the opponent to the check rays if it
+	// contains the winning condition piece.
+	private void addCheckRay(Piece piece, int square) {
+		for (int word = 0; word < WORDS; word++) {
+			reach[word] = 0;
+		}
+		AttackMap.addReach(piece, square, reach, 0);
+
+		if (contains(reach, wincondition)) {
+			if (AttackMap.looksOutOfPaths(piece)) {
+				enabled = false;
+			}
+			for (int word = 0; word < WORDS; word++) {
+				checkrays[word] |= reach[word];
+			}
+		}
+	}
+
+	/**
+	 * @param from
+	 *            the origin square of the move.
+	 * @param to
+	 *            the destination square of the move.
+	 * @return true if the move cannot leave the player in check, false if it
+	 *         must be simulated.
+	 */
+	public Boolean isSafe(int from, int to) {
+		return enabled && from != wincondition && !contains(checkrays, from) && !contains(checkrays, to);
+	}
+
+	private static boolean contains(long[] bits, int square) {
+		return (bits[square >> 6] & (1L << square)) != 0;
+	}
+}
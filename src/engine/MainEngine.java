@@ -2,91 +2,149 @@ package engine;
 
 import java.util.ArrayList;
 
+import board.Board;
+import board.Zobrist;
+import board.components.Ground;
 import board.components.Piece;
 import engine.simulation.Simulation;
-import stats.Match;
+import stats.MatchContext;
 import strategy.data.Coordinates;
 
 /**
  * This class is the key stone of the game's engine. It is here that we generate
  * the new turns, command to the {@link MovementValidator} to generate the
  * piece's possible moves, make the game evolve when a player is checked etc...
+ * Each engine makes one match evolve, the one of its {@link MatchContext}.
  * 
- * @see Match
+ * @see MatchContext
  * @see MovementValidator
+ * @see TranspositionTable
  * @author Dorian CHENET
  *
  */
 public class MainEngine {
 
-	public static MainEngine engine = new MainEngine();
-
-	private Simulation simulation = new Simulation();
-
-	private MainEngine() {
-
+	// The match this engine makes evolve.
+	private MatchContext context = null;
+
+	private Simulation simulation = null;
+
+	// The validator of the playing board.
+	private MovementValidator mvalidator = new MovementValidator();
+
+	/**
+	 * The legality cache: for a position reached by a move (the key of the
+	 * units after the move and the color of the player who moved), tells if
+	 * the player who moved is in check. It is cleared when the grounds of the
+	 * playing board change. It is only used when a player is in check, so it
+	 * is created at the first check and kept small: a process can hold many
+	 * matches.
+	 * 
+	 * @see TranspositionTable
+	 */
+	private static final int LEGALITY_CACHE_SIZE = 1 << 12;
+	private TranspositionTable legalitycache = null;
+	private Ground[][] cachedenvironement = null;
+
+	/**
+	 * The moves of the enemy player which cannot leave him in check are not
+	 * simulated.
+	 * 
+	 * @see LegalityFilter
+	 */
+	private LegalityFilter legalityfilter = new LegalityFilter();
+
+	public MainEngine(MatchContext context) {
+		this.context = context;
+		this.simulation = new Simulation(context);
 	}
 
-	// This method is used to generate a new game turn.
+	// This method is used to generate a new game turn and make the current
+	// player play.
 	public void newTurn() {
+		advance();
 
-		// Recovering the Movementvalidator and initializing it.
-		MovementValidator mvalidator = MovementValidator.getInstance();
+		/**
+		 * We make the curent player play.
+		 * 
+		 * @see Chesster
+		 * @see Player
+		 */
+		context.getCurrentplayer().play();
+	}
 
+	/**
+	 * This method generates a new game turn without making the current player
+	 * play: the possible moves of the player who plays are generated, the
+	 * checks and the winner are updated and the players are swapped. It is
+	 * used by the matches played without the game window, where the moves are
+	 * played by the caller.
+	 */
+	public void advance() {
+
+		// Initializing the Movementvalidator.
 		mvalidator.clearCoveredZone();
-		mvalidator.setBoard(Match.getBoard());
+		mvalidator.setBoard(context.getBoard());
+
+		// Copying the playing board once, the simulation takes back every
+		// simulated move.
+		simulation.reset();
 
 		// If a new turn is played it's that no player is in check, otherwise
 		// the game is finished so we put both players as "not checked".
-		Match.getInstance().getPlayer1().setIschecked(false);
-		Match.getInstance().getPlayer2().setIschecked(false);
+		context.getPlayer1().setIschecked(false);
+		context.getPlayer2().setIschecked(false);
 
 		/**
 		 * Generating the possible moves of all the pieces of the player who
 		 * just made the move. If the {@link MovementValidator} returns that the
 		 * enemy player is checked, we put the enemy player checked.
 		 */
-		for (Piece piece : Match.getInstance().getCurrentplayer().getPieces()) {
+		for (Piece piece : context.getCurrentplayer().getPieces()) {
 			if (mvalidator.generatePieceMovements(piece)) {
-				Match.getInstance().getWaitingplayer().setIschecked(true);
+				context.getWaitingplayer().setIschecked(true);
 			}
 
 		}
 
 		// Same process with the winning condition piece of the player who just
 		// made the move.
-		if (mvalidator.generatePieceMovements(Match.getInstance().getCurrentplayer().getWinconditionpiece())) {
-			Match.getInstance().getWaitingplayer().setIschecked(true);
+		if (mvalidator.generatePieceMovements(context.getCurrentplayer().getWinconditionpiece())) {
+			context.getWaitingplayer().setIschecked(true);
 		}
 
 		// We generate the possible moves of the enemy player's piece which
 		// holds the winning condition.
-		mvalidator.generatePieceMovements(Match.getInstance().getWaitingplayer().getWinconditionpiece());
+		mvalidator.generatePieceMovements(context.getWaitingplayer().getWinconditionpiece());
+
+		// Computing the check rays of the enemy player.
+		legalityfilter.reset(context.getBoard(), context.getWaitingplayer().getColor(),
+				context.getWaitingplayer().getIschecked());
 
 		// If the enemy player is checked, do this.
-		if (Match.getInstance().getWaitingplayer().getIschecked()) {
+		if (context.getWaitingplayer().getIschecked()) {
 
 			// We generate all the possible moves for all the enemy player's
 			// pieces.
-			for (Piece piece : Match.getInstance().getWaitingplayer().getPieces()) {
+			for (Piece piece : context.getWaitingplayer().getPieces()) {
 				piece.getPossiblemoves().clear();
 				mvalidator.generatePieceMovements(piece);
 			}
 
 			// For every enemy player's piece, we remove all the moves that
 			// doesn't prevent him from beeing checked.
-			for (Piece piece : Match.getInstance().getWaitingplayer().getPieces()) {
+			for (Piece piece : context.getWaitingplayer().getPieces()) {
 				selectMovement(piece);
 			}
 
 			// If the enemy player's winning condition piece doesn't have any
 			// possible moves, do this.
-			if (Match.getInstance().getWaitingplayer().getWinconditionpiece().getPossiblemoves().size() == 0) {
+			if (context.getWaitingplayer().getWinconditionpiece().getPossiblemoves().size() == 0) {
 				Boolean wins = true;
 
 				// Checking if any other piece has possible moves that could
 				// prevent the enemy player from beeing checked.
-				for (Piece piece : Match.getInstance().getWaitingplayer().getPieces()) {
+				for (Piece piece : context.getWaitingplayer().getPieces()) {
 					if (piece.getPossiblemoves().size() > 0) {
 						wins = false;
 					}
@@ -94,7 +152,7 @@ public class MainEngine {
 
 				// If not, the player who made the last move has won.
 				if (wins) {
-					Match.getInstance().setWinner(Match.getInstance().getCurrentplayer());
+					context.setWinner(context.getCurrentplayer());
 				}
 
 			}
@@ -104,7 +162,7 @@ public class MainEngine {
 		// If the enemy player isn't checked, do this.
 		else {
 			// We generate all the possible moves for every enemy piece.
-			for (Piece piece : Match.getInstance().getWaitingplayer().getPieces()) {
+			for (Piece piece : context.getWaitingplayer().getPieces()) {
 				piece.getPossiblemoves().clear();
 				mvalidator.generatePieceMovements(piece);
 
@@ -117,22 +175,13 @@ public class MainEngine {
 
 		// If it is the first time that this method is called, we don't swap the
 		// player's turns.
-		if (Match.getInstance().getTurnnumber() != 0) {
+		if (context.getTurnnumber() != 0) {
 			/**
 			 * The enemy player becomes the player who plays {@link Match}
 			 */
-			Match.getInstance().swap();
+			context.swap();
 		}
-		Match.getInstance().setTurnnumber(Match.getInstance().getTurnnumber() + 1);
-
-		/**
-		 * We make the curent player play.
-		 * 
-		 * @see Chesster
-		 * @see Player
-		 */
-		Match.getInstance().getCurrentplayer().play();
-
+		context.setTurnnumber(context.getTurnnumber() + 1);
 	}
 
 	// This method removes every move that might make the player checked if they
@@ -141,14 +190,39 @@ public class MainEngine {
 		ArrayList<Coordinates> toclearmovements = new ArrayList<Coordinates>();
 		toclearmovements.clear();
 
+		if (legalitycache == null) {
+			cachedenvironement = context.getBoard().getEnvironement();
+			legalitycache = new TranspositionTable(LEGALITY_CACHE_SIZE);
+		} else if (cachedenvironement != context.getBoard().getEnvironement()) {
+			cachedenvironement = context.getBoard().getEnvironement();
+			legalitycache.clear();
+		}
+
+		int from = Board.square(piece.getCoordonates().getX(), piece.getCoordonates().getY());
+
 		/**
 		 * We use the {@link Simulation} to check if the player is checking
-		 * himself when playing a move. If yes, the move is removed.
+		 * himself when playing a move. If yes, the move is removed. The result
+		 * is kept in the legality cache. The moves out of the check rays of
+		 * the {@link LegalityFilter} are legal without simulation.
 		 */
 		for (Coordinates coordonates : piece.getPossiblemoves()) {
-			simulation.reset();
+			int to = Board.square(coordonates.getX(), coordonates.getY());
+			Boolean legal = true;
+
+			if (!legalityfilter.isSafe(from, to)) {
+				long key = context.getBoard().getMoveKey(from, to) ^ Zobrist.getSideKey(piece.getColorid());
+				long entry = legalitycache.probe(key);
+
+				if (entry != TranspositionTable.MISS) {
+					legal = TranspositionTable.getScore(entry) == 1;
+				} else {
+					legal = simulation.simulate(piece.getCoordonates(), coordonates);
+					legalitycache.store(key, legal ? 1 : 0, 0, 0, TranspositionTable.EXACT);
+				}
+			}
 
-			if (!simulation.simulate(piece.getCoordonates(), coordonates)) {
+			if (!legal) {
 				toclearmovements.add(coordonates);
 			}
 
@@ -0,0 +1,302 @@
+package engine;
+
+import java.util.Arrays;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import engine.simulation.Simulation;
+import intelligence.AlphaBetaSearch;
+import stats.Match;
+import stats.MatchParameters;
+import strategy.data.Coordinates;
+import strategy.data.SquareList;
+
+/**
+ * The move generator lists the legal moves of a color on any {@link Board},
+ * not only on the playing board of the {@link Match}. The moves of the pieces
+ * are generated by the {@link MovementValidator}, each move is then made with
+ * {@link Board#makeMove} and taken back to check that it does not leave the
+ * player in check.
+ *
+ * Unlike {@link Simulation}, the generator does not copy the board: it works
+ * directly on the board it is given, so it must be a private copy (the
+ * possible moves of the pieces of that board are overwritten, only as squares:
+ * no {@link Coordinates} are created). It is used by
+ * {@link AlphaBetaSearch}. The check after each move is read from an
+ * {@link AttackMap} of the opponent.
+ *
+ * A move is packed in an int: the destination square (bits 0-7), the origin
+ * square (bits 8-15), the weight of the taken piece (bits 16-22), a capture
+ * flag (bit 23) and a signed score used by the search to order the moves (bits
+ * 24-31). Only the two squares identify the move, see MOVE_MASK.
+ *
+ * The moves are written in buffers kept by the generator, one per ply of the
+ * search, so that generating the moves of a node does not allocate anything:
+ * the moves of a ply stay readable while the moves of the deeper plies are
+ * generated.
+ *
+ * @see MovementValidator
+ * @see Board
+ * @see AlphaBetaSearch
+ * @author Dorian CHENET
+ *
+ */
+public class MoveGenerator {
+
+	// The squares of a move, without its capture and its score.
+	public static final int MOVE_MASK = 0xFFFF;
+
+	public static final int CAPTURE_FLAG = 1 << 23;
+
+	// The bounds of the weight of the taken piece and of the score.
+	public static final int MAX_CAPTURED_WEIGHT = 0x7F;
+	public static final int MIN_SCORE = -128;
+	public static final int MAX_SCORE = 127;
+
+	// The number of plies whose buffer is created at first, more are added
+	// when needed.
+	private static final int PLIES = 64;
+
+	private MovementValidator mvalidator = null;
+
+	// The buffers of the moves, one per ply.
+	private int[][] plymoves = new int[PLIES][];
+
+	// True if the player whose legal moves were generated last is in check.
+	private Boolean checked = false;
+
+	// The covered zone of the opponent, updated by each move made to check
+	// its legality.
+	private AttackMap attackmap = null;
+
+	// The moves out of the check rays are not made.
+	private LegalityFilter legalityfilter = new LegalityFilter();
+
+	// The board the moves are generated on.
+	private Board board = null;
+
+	// The generator owns its validator, several generators can then be used
+	// at the same time by different threads.
+	public MoveGenerator(Board board) {
+		this.board = board;
+		this.mvalidator = new MovementValidator(board);
+		this.mvalidator.setFillcoordinates(false);
+		this.attackmap = new AttackMap(board);
+	}
+
+	public static int encode(int from, int to) {
+		return (from << 8) | to;
+	}
+
+	/**
+	 * @param from
+	 * @param to
+	 * @param weight
+	 *            the weight of the taken piece.
+	 * @return the move taking a piece.
+	 */
+	public static int encodeCapture(int from, int to, int weight) {
+		return encode(from, to) | CAPTURE_FLAG
+				| (Math.max(0, Math.min(weight, MAX_CAPTURED_WEIGHT)) << 16);
+	}
+
+	public static int from(int move) {
+		return (move >>> 8) & 0xFF;
+	}
+
+	public static int to(int move) {
+		return move & 0xFF;
+	}
+
+	public static Boolean isCapture(int move) {
+		return (move & CAPTURE_FLAG) != 0;
+	}
+
+	// The weight of the taken piece, 0 if the move does not take a piece.
+	public static int captured(int move) {
+		return (move >>> 16) & MAX_CAPTURED_WEIGHT;
+	}
+
+	public static int score(int move) {
+		return move >> 24;
+	}
+
+	// Returns the move with the given score, kept between MIN_SCORE and
+	// MAX_SCORE.
+	public static int withScore(int move, int score) {
+		return (move & 0xFFFFFF) | (Math.max(MIN_SCORE, Math.min(score, MAX_SCORE)) << 24);
+	}
+
+	// Returns the color of the opponent of the given color.
+	public static String opponentColor(String color) {
+		if (color.equals(MatchParameters.RED_COLOR)) {
+			return MatchParameters.BLACK_COLOR;
+		} else {
+			return MatchParameters.RED_COLOR;
+		}
+	}
+
+	/**
+	 * @param color
+	 * @return the moves of the pieces of the given color which do not leave
+	 *         the player in check. The buffer of the ply 0 is used.
+	 */
+	public int[] generateLegalMoves(String color) {
+		int count = generateLegalMoves(color, 0);
+		return Arrays.copyOf(getMoves(0), count);
+	}
+
+	/**
+	 * @param color
+	 * @param ply
+	 *            the ply whose buffer receives the moves.
+	 * @return the number of moves of the pieces of the given color which do
+	 *         not leave the player in check, they are read with getMoves(ply).
+	 */
+	public int generateLegalMoves(String color, int ply) {
+		int length = generatePseudoLegalMoves(color, ply);
+		int[] moves = plymoves[ply];
+		int count = 0;
+
+		// Only the pieces of the opponent reached by a move are evaluated
+		// again to know if the move leaves the player in check, and only the
+		// moves crossing the check rays are made.
+		attackmap.reset(opponentColor(color));
+		checked = attackmap.isChecking();
+		legalityfilter.reset(board, color, checked);
+
+		for (int index = 0; index < length; index++) {
+			int from = from(moves[index]);
+			int to = to(moves[index]);
+
+			Boolean legal = legalityfilter.isSafe(from, to);
+
+			if (!legal) {
+				board.makeMove(from, to);
+				attackmap.update(from, to);
+				legal = !attackmap.isChecking();
+				board.unmakeMove();
+				attackmap.undo();
+			}
+
+			if (legal) {
+				moves[count] = moves[index];
+				count++;
+			}
+		}
+
+		return count;
+	}
+
+	/**
+	 * @param color
+	 * @return the moves allowed by the rules of the pieces of the given color,
+	 *         whether they leave the player in check or not. The buffer of the
+	 *         ply 0 is used.
+	 */
+	public int[] generatePseudoLegalMoves(String color) {
+		int count = generatePseudoLegalMoves(color, 0);
+		return Arrays.copyOf(getMoves(0), count);
+	}
+
+	/**
+	 * @param color
+	 * @param ply
+	 *            the ply whose buffer receives the moves.
+	 * @return the number of moves allowed by the rules of the pieces of the
+	 *         given color, they are read with getMoves(ply).
+	 */
+	public int generatePseudoLegalMoves(String color, int ply) {
+		int[] moves = getMoves(ply);
+		int count = 0;
+		int colorid = MatchParameters.getColorId(color);
+
+		// The pieces are read from the bit plane of the color, in square
+		// order.
+		long[] plane = board.getColorUnits(colorid);
+		for (int word = 0; word < BoardParameters.BITBOARD_WORDS; word++) {
+			long bits = plane[word];
+			while (bits != 0) {
+				int from = (word << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+				Piece piece = board.getPiece(from);
+
+				// The covered zone is only used to keep the winning condition
+				// piece out of check, which is checked by making the moves
+				// here.
+				mvalidator.clearCoveredZone();
+				mvalidator.generatePieceMovements(piece);
+
+				SquareList destinations = piece.getPossiblesquares();
+				for (int index = 0; index < destinations.size(); index++) {
+					Piece target = board.getPiece(destinations.get(index));
+					if (target == null || target.getColorid() != colorid) {
+						if (count == moves.length) {
+							moves = Arrays.copyOf(moves, count * 2);
+							plymoves[ply] = moves;
+						}
+						if (target == null) {
+							moves[count] = encode(from, destinations.get(index));
+						} else {
+							moves[count] = encodeCapture(from, destinations.get(index), target.getWeight());
+						}
+						count++;
+					}
+				}
+			}
+		}
+
+		mvalidator.clearCoveredZone();
+
+		return count;
+	}
+
+	/**
+	 * @param ply
+	 * @return the buffer of the moves of the ply, the moves generated for the
+	 *         ply are at its beginning.
+	 */
+	public int[] getMoves(int ply) {
+		if (ply >= plymoves.length) {
+			plymoves = Arrays.copyOf(plymoves, Math.max(ply + 1, plymoves.length * 2));
+		}
+		if (plymoves[ply] == null) {
+			plymoves[ply] = new int[64];
+		}
+		return plymoves[ply];
+	}
+
+	/**
+	 * @param color
+	 * @return true if a piece of the opponent can reach the winning condition
+	 *         piece of the given color, else false.
+	 */
+	public Boolean isChecked(String color) {
+		Boolean checked = false;
+
+		for (Piece piece : board.getPieces(opponentColor(color))) {
+			if (!checked) {
+				mvalidator.clearCoveredZone();
+				checked = mvalidator.generatePieceMovements(piece);
+			}
+		}
+
+		mvalidator.clearCoveredZone();
+
+		return checked;
+	}
+
+	/**
+	 * @return true if the player whose legal moves were generated last was in
+	 *         check, read from the attack map without scanning the pieces
+	 *         again.
+	 */
+	public Boolean getChecked() {
+		return checked;
+	}
+
+	public Board getBoard() {
+		return board;
+	}
+}
@@ -1,36 +1,46 @@
 package engine;
 
-import java.util.ArrayList;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.Arrays;
 
 import board.Board;
 import board.BoardParameters;
 import board.components.Ground;
 import board.components.Piece;
-import compiler.lang.Grammar;
+import board.components.PieceModel;
 import compiler.lang.RuleGrammar;
 import compiler.lang.ValidityGrammar;
 import engine.simulation.Simulation;
 import engine.visitor.RuleEvaluator;
 import rules.Rule;
-import stats.Match;
+import rules.RulePredicate;
 import strategy.data.Coordinates;
+import strategy.data.GroundPaterns;
+import strategy.data.MoveTable;
 import strategy.data.MovementPatern;
+import strategy.data.SquareList;
 
 /**
  * The goal of this class is to fill the possiblemoves attribute of a
  * {@link Piece}. It evaluates the validity of each path contained in the
  * relevant {@link MovementPatern} of the {@link Piece} through the
- * {@link RuleEvaluator}. According the the Integer returned by
- * {@link RuleEvaluator}, a move can be added to the possible moves or the
- * covered zone or be treated as invalid.
+ * {@link RulePredicate} compiled from each {@link Rule}. According the the
+ * Integer returned by the predicates, a move can be added to the possible
+ * moves or the covered zone or be treated as invalid. The predicates give the
+ * same validity as the {@link RuleEvaluator}, without a dispatch and without
+ * comparing the names of the grounds and of the types.
  * 
  * For each piece going through the validation process, a Boolean is returned:
  * true if the piece checks the enemy player, false if it does not.
  * 
- * The movement Validator is an instance (singleton patern) because it's easier
- * to access its methods/attributes with the static modifier.
+ * Each {@link MainEngine}, {@link Simulation} and {@link MoveGenerator} owns
+ * its validator: a validator holds the board it works on and its covered zone,
+ * so two validators can be used at the same time by different threads (the
+ * predicates hold no state).
+ * 
+ * The covered zone counts, for each square, the moves of the pieces evaluated
+ * since it was cleared which can eat a piece on that square, so that looking a
+ * square up does not depend on the number of moves. The {@link AttackMap}
+ * keeps it up to date when only some pieces are evaluated again.
  * 
  * This class is also used by {@link Simulation} to validate deplacements on the
  * simulated board.
@@ -40,28 +50,30 @@ import strategy.data.MovementPatern;
  */
 public class MovementValidator {
 
-	// Instance of the validator
-	private static MovementValidator instance = new MovementValidator();
+	// The covered zone, indexed by square.
+	int[] coveredzone = new int[BoardParameters.BOARD_SQUARES];
 
-	ArrayList<Coordinates> possiblemoves = new ArrayList<Coordinates>();
-	ArrayList<Coordinates> coveredzone = new ArrayList<Coordinates>();
+	// The squares added to the covered zone by the last piece evaluated.
+	SquareList lastcovered = new SquareList();
 
-	// Tools for validation
-	RuleEvaluator evaluator = new RuleEvaluator();
-	Coordinates simulatedcoordonates = new Coordinates();
+	/**
+	 * The board, used for context.
+	 */
+	Board board = null;
 
 	/**
-	 * The board, used for context, it might be set to an other board as the
-	 * MovementValidator is also used by {@link Simulation}.
+	 * If false, the possible moves and the covered zone of the pieces are
+	 * only given as squares ({@link SquareList}) and no {@link Coordinates}
+	 * are created.
 	 */
-	Board board = Match.getBoard();
+	Boolean fillcoordinates = true;
 
-	private MovementValidator() {
+	public MovementValidator() {
 		// TODO Auto-generated constructor stub
 	}
 
-	public static MovementValidator getInstance() {
-		return instance;
+	public MovementValidator(Board board) {
+		this.board = board;
 	}
 
 	/**
@@ -71,36 +83,46 @@ public class MovementValidator {
 	 * the piece using the alternative {@link MovementPatern}. It calls the
 	 * method evaluatePatern() to generated the possible moves.
 	 * 
+	 * The paterns of the ground the piece stands on and the rules sorted by
+	 * priority are read from the {@link GroundPaterns} and the priority list
+	 * of the piece, built once with its {@link PieceModel}.
+	 * 
 	 * @param piece
 	 * @return true if the piece has a move which puts the enemy player in
 	 *         check, else false.
 	 */
 	public Boolean generatePieceMovements(Piece piece) {
 		piece.getPossiblemoves().clear();
-		simulatedcoordonates = new Coordinates(piece.getCoordonates().getX(), piece.getCoordonates().getY());
-		ArrayList<MovementPatern> paterns = piece.getMovementpaterns();
+		piece.getCoveredzone().clear();
+		piece.getPossiblesquares().clear();
+		piece.getCoveredsquares().clear();
+		lastcovered.clear();
+		GroundPaterns paterns = piece.getGroundpaterns();
+		int groundid = board.getGround(piece.getCoordonates()).getId();
 		Boolean checks = false;
 
-		// check all the moves contained in the standard patterns, build the
-		// priority list.
-		checks = evaluatePaterns(getStandardPaterns(paterns), piece, buildPriorityList(piece));
+		// check all the moves contained in the standard patterns of the
+		// ground.
+		checks = evaluatePaterns(paterns.getStandardPaterns(groundid), piece, piece.getPrioritylist());
 
 		// If no movement is possible, do the same process with the alternative
 		// movement patterns.
-		if (piece.getPossiblemoves().size() == 0) {
-			checks = evaluatePaterns(getAlternativePaterns(paterns), piece, buildPriorityList(piece));
+		if (piece.getPossiblesquares().size() == 0) {
+			checks = evaluatePaterns(paterns.getAlternativePaterns(groundid), piece, piece.getPrioritylist());
 		}
 
 		return checks;
 	}
 
 	/**
-	 * This Method generates the possible moves of the {@link Piece}. It first
-	 * recovers the {@link MovementPatern} which has a tag corresponding to the
-	 * {@link Ground} type the piece stands on. Then for every move contained in
-	 * the movement pattern it uses the {@link RuleEvaluator} to check for the
+	 * This Method generates the possible moves of the {@link Piece} with the
+	 * {@link MovementPatern} of the {@link Ground} type the piece stands on
+	 * (the default ones if the ground has none). For every move of the
+	 * compiled {@link MoveTable} of the pattern starting on the square of the
+	 * piece (the moves ending out of the board are not in the table) it uses
+	 * the {@link RulePredicate} of each rule to check for the
 	 * validity of the move. Then it analyzes the return value of
-	 * {@link RuleEvaluator} to put the final position of the move in the arrays
+	 * the predicates to put the final position of the move in the arrays
 	 * possiblemove or coveredzone of refuse the move because it is not valid.
 	 * 
 	 * @see ValidityGrammar
@@ -110,135 +132,116 @@ public class MovementValidator {
 	 * @param prioritylist
 	 * @return
 	 */
-	private Boolean evaluatePaterns(ArrayList<MovementPatern> paterns, Piece piece, LinkedList<Rule> prioritylist) {
-		Coordinates position = new Coordinates();
-		ArrayList<MovementPatern> ongroundpaternlist = new ArrayList<MovementPatern>();
+	private Boolean evaluatePaterns(MovementPatern[] paterns, Piece piece, Rule[] prioritylist) {
+		Coordinates position = null;
 		Boolean checks = false;
 
-		// Recovering the movement patterns with a tag corresponding to the
-		// ground type the piece is currently on.
-		for (MovementPatern patern : paterns) {
-			if (patern.getTag().getGroundtype().equals(board.getGround(piece.getCoordonates()).getName())) {
-				ongroundpaternlist.add(patern);
-			}
-		}
-
-		// If no specific pattern has been found, recover the default movement
-		// pattern.
-		if (ongroundpaternlist.isEmpty()) {
-			for (MovementPatern patern : paterns) {
-				if (patern.getTag().getGroundtype().equals(Grammar.DEFAULT_GROUND)) {
-					ongroundpaternlist.add(patern);
-				}
-			}
-		}
+		int origin = Board.square(piece.getCoordonates().getX(), piece.getCoordonates().getY());
 
 		// For each pattern, process each move.
-		for (MovementPatern patern : ongroundpaternlist) {
-			for (LinkedList<Coordinates> path : patern.getPathlist()) {
-				// Make a copy of the current coordinates of the piece to work
-				// with it.
-				simulatedcoordonates = new Coordinates(piece.getCoordonates().getX(), piece.getCoordonates().getY());
+		for (MovementPatern patern : paterns) {
+			for (int[] path : patern.getMovetable().getPaths(origin)) {
+				// The rules are applied from the current square of the piece.
+				int simulatedsquare = origin;
 
 				// Iteration presets
-				Iterator<Rule> prioritylistiterator = prioritylist.iterator();
+				int ruleindex = 0;
 				Rule curentrule = null;
 				int validity = ValidityGrammar.CAN_EAT;
 
-				// calculate the final position of the move.
-				position = getFinalPosition(simulatedcoordonates, path);
+				// The final position of the move is the last square of the
+				// compiled path, it is always on the board.
+				int finalsquare = path[path.length - 1];
 
-				// If the final position of the move is out of the board, it is
-				// directly considered invalid.
-				if (isInbounds(position)) {
+				/**
+				 * Validate each move through the {@link RulePredicate}.
+				 */
+				while (ruleindex < prioritylist.length && validity == ValidityGrammar.CAN_EAT) {
+					curentrule = prioritylist[ruleindex];
+					ruleindex++;
 
 					/**
-					 * Validate each move through the {@link RuleEvaluator}.
+					 * If the priority of the rule is STAGE_FINAL, it means
+					 * that the rule must be applied to the pies with the
+					 * coordinates of the end of the deplacement, so we
+					 * update the simulated coordinates.
+					 * 
+					 * @see RuleGrammar
 					 */
-					while (prioritylistiterator.hasNext() && validity == ValidityGrammar.CAN_EAT) {
-						curentrule = prioritylistiterator.next();
-
-						/**
-						 * If the priority of the rule is STAGE_FINAL, it means
-						 * that the rule must be applied to the pies with the
-						 * coordinates of the end of the deplacement, so we
-						 * update the simulated coordinates.
-						 * 
-						 * @see RuleGrammar
-						 */
-						if (curentrule.getEvalutaionpriority() == RuleGrammar.STAGE_FINAL) {
-							simulatedcoordonates = position;
-						}
-
-						/**
-						 * Setting the context of the {@link RuleEvaluator}.
-						 */
-						evaluator.setContext(simulatedcoordonates, path, piece, board);
-
-						/**
-						 * Getting the validity of the move
-						 * {@link ValidityGrammar}.
-						 */
-						validity = curentrule.evaluate(evaluator);
+					if (curentrule.getEvalutaionpriority() == RuleGrammar.STAGE_FINAL) {
+						simulatedsquare = finalsquare;
 					}
 
-					// If the final position of the deplacement is a slot of the
-					// board which is already taken by an other piece, we make
-					// sure that this piece belongs to the enemy player. We also
-					// make sure that the piece doesn't hold a winning
-					// condition, otherwise it is impossible to eat it so the
-					// validity becomes "CHECK".
-					if (validity == ValidityGrammar.CAN_EAT) {
-						if (board.getPiece(position) != null) {
-							Piece pospiece = board.getPiece(position);
-							if (pospiece.getWincondition()
-									&& !pospiece.getColor().equals(Match.getInstance().getCurrentplayer().getColor())) {
-								validity = ValidityGrammar.CHECK;
-								checks = true;
-							}
-						}
+					/**
+					 * Getting the validity of the move
+					 * {@link ValidityGrammar}.
+					 */
+					validity = curentrule.getPredicate().evaluate(simulatedsquare, path, piece, board);
+				}
+
+				// The position is only created for the moves kept.
+				if (validity != ValidityGrammar.NOT_VALID && fillcoordinates) {
+					position = new Coordinates(Board.squareX(finalsquare), Board.squareY(finalsquare));
+				}
 
-						// If the piece we are calculating the possible moves of
-						// holds a winning condition, it can't put itself in
-						// check so it must not be able to go at a position when
-						// the enemy can eat pieces. The validity becomes
-						// "NOT_VALID".
-						if (piece.getWincondition() && coveredzone.contains(position)) {
-							validity = ValidityGrammar.NOT_VALID;
+				// If the final position of the deplacement is a slot of the
+				// board which is already taken by an other piece, we make
+				// sure that this piece belongs to the enemy player. We also
+				// make sure that the piece doesn't hold a winning
+				// condition, otherwise it is impossible to eat it so the
+				// validity becomes "CHECK". The check is relative to the color
+				// of the moving piece so that any board can be validated, not
+				// only the position of the current player.
+				if (validity == ValidityGrammar.CAN_EAT) {
+					if (board.getPiece(finalsquare) != null) {
+						Piece pospiece = board.getPiece(finalsquare);
+						if (pospiece.getWincondition()
+								&& pospiece.getColorid() != piece.getColorid()) {
+							validity = ValidityGrammar.CHECK;
+							checks = true;
 						}
 					}
 
-					// Some pieces might not be able to eat pieces all the time
-					// so some moves might be "DEPLACEMENT_ONLY" which means
-					// that the move is playable but it's not a position where
-					// the piece can eat another. We put the position in the
-					// possible moves array.
-					if (validity == ValidityGrammar.DEPLACEMENT_ONLY) {
-						piece.getPossiblemoves().add(position);
+					// If the piece we are calculating the possible moves of
+					// holds a winning condition, it can't put itself in
+					// check so it must not be able to go at a position when
+					// the enemy can eat pieces. The validity becomes
+					// "NOT_VALID".
+					if (piece.getWincondition() && coveredzone[finalsquare] > 0) {
+						validity = ValidityGrammar.NOT_VALID;
 					}
+				}
 
-					// If the piece can eat an other piece at the calculated
-					// position , we put it in the covered zone as well as in the
-					// possible moves.
-					if (validity == ValidityGrammar.CAN_EAT) {
-						piece.getPossiblemoves().add(position);
-						piece.getCoveredzone().add(position);
-						coveredzone.add(position);
-					}
+				// Some pieces might not be able to eat pieces all the time
+				// so some moves might be "DEPLACEMENT_ONLY" which means
+				// that the move is playable but it's not a position where
+				// the piece can eat another. We put the position in the
+				// possible moves array.
+				if (validity == ValidityGrammar.DEPLACEMENT_ONLY) {
+					addPossibleMove(piece, finalsquare, position);
+				}
 
-					// A piece might not be able to eat a piece but the zone is
-					// still covered, we put the position in the covered zone.
-					else if (validity == ValidityGrammar.IS_ONLY_COVERED) {
-						piece.getCoveredzone().add(position);
-						coveredzone.add(position);
-					}
+				// If the piece can eat an other piece at the calculated
+				// position , we put it in the covered zone as well as in the
+				// possible moves.
+				if (validity == ValidityGrammar.CAN_EAT) {
+					addPossibleMove(piece, finalsquare, position);
+					addCoveredPosition(piece, finalsquare, position);
+					cover(finalsquare);
+				}
 
-					// If the validity is checked then we must return that the
-					// piece puts the enemy player in check.
-					else if (validity == ValidityGrammar.CHECK) {
-						piece.getCoveredzone().add(position);
-						checks = true;
-					}
+				// A piece might not be able to eat a piece but the zone is
+				// still covered, we put the position in the covered zone.
+				else if (validity == ValidityGrammar.IS_ONLY_COVERED) {
+					addCoveredPosition(piece, finalsquare, position);
+					cover(finalsquare);
+				}
+
+				// If the validity is checked then we must return that the
+				// piece puts the enemy player in check.
+				else if (validity == ValidityGrammar.CHECK) {
+					addCoveredPosition(piece, finalsquare, position);
+					checks = true;
 				}
 			}
 		}
@@ -246,77 +249,71 @@ public class MovementValidator {
 		return checks;
 	}
 
-	/**
-	 * The priority list is build using the priority values contained in the
-	 * different {@link Rule} of the {@link Piece}. The list contains the Rules
-	 * with the highest priority at its head so that they are validated first.
-	 * 
-	 * @see RuleGrammar
-	 * @param piece
-	 * @return a list of rules sorted according to their priority
-	 */
-	private LinkedList<Rule> buildPriorityList(Piece piece) {
-		LinkedList<Rule> prioritylist = new LinkedList<Rule>();
-
-		for (int priority : RuleGrammar.PRIORITY_LIST) {
-			for (Rule rule : piece.getRules()) {
-				if (rule.getEvalutaionpriority() == priority) {
-					prioritylist.addLast(rule);
-				}
-			}
-		}
+	public Board getBoard() {
+		return board;
+	}
 
-		return prioritylist;
+	public void setBoard(Board board) {
+		this.board = board;
 	}
 
-	private Coordinates getFinalPosition(Coordinates pieceposition, LinkedList<Coordinates> path) {
+	public Boolean getFillcoordinates() {
+		return fillcoordinates;
+	}
 
-		Coordinates position = new Coordinates(pieceposition.getX(), pieceposition.getY());
-		Coordinates increment = null;
+	public void setFillcoordinates(Boolean fillcoordinates) {
+		this.fillcoordinates = fillcoordinates;
+	}
 
-		Iterator<Coordinates> pathiterator = path.iterator();
+	// Adding a possible move to the piece, the position is null if the
+	// coordinates are not filled.
+	private void addPossibleMove(Piece piece, int square, Coordinates position) {
+		piece.getPossiblesquares().add(square);
+		if (fillcoordinates) {
+			piece.getPossiblemoves().add(position);
+		}
+	}
 
-		while (pathiterator.hasNext()) {
-			increment = pathiterator.next();
-			position.setX(position.getX() + increment.getX());
-			position.setY(position.getY() + increment.getY());
+	// Adding a position to the covered zone of the piece.
+	private void addCoveredPosition(Piece piece, int square, Coordinates position) {
+		piece.getCoveredsquares().add(square);
+		if (fillcoordinates) {
+			piece.getCoveredzone().add(position);
 		}
+	}
 
-		return position;
+	// Adding a square to the covered zone.
+	private void cover(int square) {
+		coveredzone[square]++;
+		lastcovered.add(square);
 	}
 
-	private ArrayList<MovementPatern> getStandardPaterns(ArrayList<MovementPatern> paterns) {
-		ArrayList<MovementPatern> paternslist = new ArrayList<MovementPatern>();
-		for (MovementPatern patern : paterns) {
-			if (patern.getTag().getSpecification().equals(Grammar.TAG_STANDARD)
-					|| patern.getTag().getSpecification().equals(Grammar.MACRO_ALL)) {
-				paternslist.add(patern);
-			}
-		}
-		return paternslist;
+	// Adding back or removing a square added to the covered zone by a piece,
+	// used by the AttackMap when a piece is evaluated again or restored.
+	void addCovered(int square) {
+		coveredzone[square]++;
 	}
 
-	private ArrayList<MovementPatern> getAlternativePaterns(ArrayList<MovementPatern> paterns) {
-		ArrayList<MovementPatern> paternslist = new ArrayList<MovementPatern>();
-		for (MovementPatern patern : paterns) {
-			if (patern.getTag().getSpecification().equals(Grammar.TAG_ALTERNATIVE)
-					|| patern.getTag().getSpecification().equals(Grammar.MACRO_ALL)) {
-				paternslist.add(patern);
-			}
-		}
-		return paternslist;
+	void removeCovered(int square) {
+		coveredzone[square]--;
 	}
 
-	private Boolean isInbounds(Coordinates coordonates) {
-		return coordonates.getX() < BoardParameters.BOARD_X_LENGTH && coordonates.getX() >= 0
-				&& coordonates.getY() < BoardParameters.BOARD_Y_LENGTH && coordonates.getY() >= 0;
+	// The squares added to the covered zone by the last piece evaluated.
+	SquareList getLastCovered() {
+		return lastcovered;
 	}
 
-	public void setBoard(Board board) {
-		this.board = board;
+	/**
+	 * @param square
+	 * @return true if a piece evaluated since the covered zone was cleared can
+	 *         eat a piece on the square.
+	 */
+	public Boolean isCovered(int square) {
+		return coveredzone[square] > 0;
 	}
 
 	public void clearCoveredZone() {
-		coveredzone.clear();
+		Arrays.fill(coveredzone, 0);
+		lastcovered.clear();
 	}
 }
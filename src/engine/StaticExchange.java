@@ -0,0 +1,133 @@
+package engine;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import intelligence.Chesster;
+import stats.MatchParameters;
+import strategy.data.MoveTable;
+
+/**
+ * The static exchange evaluation gives the balance of weights of the
+ * sequence of captures on a square started by a capture: after the first
+ * capture, each player takes back on the square with its piece of least
+ * weight, and may stop when going on would lose weight.
+ *
+ * The pieces able to take on the square are read from an {@link AttackMap}
+ * per color, the captures of the sequence are made on the board and the maps
+ * are updated, so the pieces uncovered by a capture (behind a chariot, or a
+ * cannon which found its screen) take part in the exchange. The winning
+ * condition piece only takes when the square is not covered by the other
+ * player after the capture. Everything is taken back before returning.
+ *
+ * The weights are those of the pieces, as given by the piece settings.
+ *
+ * @see AttackMap
+ * @see Chesster
+ * @author Dorian CHENET
+ *
+ */
+public class StaticExchange {
+
+	private Board board = null;
+
+	// The attack maps of the two players.
+	private AttackMap redmap = null;
+	private AttackMap blackmap = null;
+
+	// The balance of the sequence after each capture, from the point of view
+	// of the player who made it.
+	private int[] gains = new int[BoardParameters.BOARD_SQUARES];
+
+	/**
+	 * @param board
+	 *            the board of the captures, it must be a private copy (see
+	 *            {@link AttackMap}).
+	 */
+	public StaticExchange(Board board) {
+		this.board = board;
+		this.redmap = new AttackMap(board);
+		this.blackmap = new AttackMap(board);
+	}
+
+	// Building the attack maps, this must be done every time the board
+	// changes.
+	public void reset() {
+		redmap.reset(MatchParameters.RED_COLOR);
+		blackmap.reset(MatchParameters.BLACK_COLOR);
+	}
+
+	/**
+	 * @param from
+	 *            the square of the piece which takes.
+	 * @param to
+	 *            the square of the taken piece.
+	 * @return the weight won (or lost, if negative) by the player who takes
+	 *         at the end of the exchange.
+	 */
+	public int evaluate(int from, int to) {
+		Piece piece = board.getPiece(from);
+		String color = MoveGenerator.opponentColor(piece.getColor());
+		int depth = 0;
+		int made = 0;
+
+		gains[0] = board.getPiece(to).getWeight();
+		make(from, to);
+		made++;
+
+		int attacker = getMap(color).getLeastValuableAttacker(to);
+		while (attacker != MoveTable.OFF_BOARD && depth + 1 < gains.length) {
+			depth++;
+
+			// The weight won by this capture, the player may also stop.
+			gains[depth] = piece.getWeight() - gains[depth - 1];
+			piece = board.getPiece(attacker);
+			make(attacker, to);
+			made++;
+
+			color = MoveGenerator.opponentColor(color);
+			if (piece.getWincondition() && getMap(color).getLeastValuableAttacker(to) != MoveTable.OFF_BOARD) {
+				// The winning condition piece cannot take on a covered
+				// square.
+				unmake();
+				made--;
+				depth--;
+				attacker = MoveTable.OFF_BOARD;
+			} else {
+				attacker = getMap(color).getLeastValuableAttacker(to);
+			}
+		}
+
+		while (made > 0) {
+			unmake();
+			made--;
+		}
+
+		// Each player chooses between taking and stopping, from the end of
+		// the sequence.
+		while (depth > 0) {
+			gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+			depth--;
+		}
+		return gains[0];
+	}
+
+	private AttackMap getMap(String color) {
+		if (color.equals(MatchParameters.RED_COLOR)) {
+			return redmap;
+		}
+		return blackmap;
+	}
+
+	private void make(int from, int to) {
+		board.makeMove(from, to);
+		redmap.update(from, to);
+		blackmap.update(from, to);
+	}
+
+	private void unmake() {
+		board.unmakeMove();
+		redmap.undo();
+		blackmap.undo();
+	}
+}
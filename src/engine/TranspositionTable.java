@@ -0,0 +1,126 @@
+package engine;
+
+import board.Board;
+import board.Zobrist;
+import intelligence.AlphaBetaSearch;
+
+/**
+ * The transposition table stores results about positions identified by their
+ * {@link Zobrist} key so that they are not computed twice. It is used by the
+ * {@link AlphaBetaSearch} to store the score of the searched positions and by
+ * the {@link MainEngine} to remember which moves leave the player in check.
+ *
+ * The table has a fixed number of slots (a power of two), a key always goes
+ * in the same slot. Each slot holds an entry packed in a long and the key
+ * xored with the entry: an entry is only returned when the xor of the two
+ * longs gives back the key. The table can thus be shared by several threads
+ * without locks, an entry written by two threads at the same time is simply
+ * not found.
+ *
+ * When two positions fall in the same slot, the entry with the greatest depth
+ * is kept, unless it was stored by an older search.
+ *
+ * An entry contains: the score (32 bits), the move (16 bits), the depth (8
+ * bits), the age of the search (4 bits) and the type of the score (2 bits,
+ * never 0 so that an entry is never 0).
+ *
+ * @see Zobrist
+ * @see Board
+ * @see AlphaBetaSearch
+ * @see MainEngine
+ * @author Dorian CHENET
+ *
+ */
+public class TranspositionTable {
+
+	// Returned when a position is not in the table.
+	public static final long MISS = 0;
+
+	// The types of score.
+	public static final int EXACT = 1;
+	public static final int LOWER_BOUND = 2;
+	public static final int UPPER_BOUND = 3;
+
+	private long[] keys;
+	private long[] entries;
+	private int mask;
+
+	// The age of the current search, the entries of older searches are
+	// replaced first.
+	private int age = 0;
+
+	/**
+	 * @param size
+	 *            the number of slots, rounded up to a power of two.
+	 */
+	public TranspositionTable(int size) {
+		int slots = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+		keys = new long[slots];
+		entries = new long[slots];
+		mask = slots - 1;
+	}
+
+	/**
+	 * @param key
+	 * @return the entry of the position, MISS if the position is not in the
+	 *         table.
+	 */
+	public long probe(long key) {
+		int slot = (int) key & mask;
+		long entry = entries[slot];
+		if (entry != MISS && (keys[slot] ^ entry) == key) {
+			return entry;
+		}
+		return MISS;
+	}
+
+	public void store(long key, int score, int move, int depth, int type) {
+		int slot = (int) key & mask;
+		long previous = entries[slot];
+
+		if (previous == MISS || getAge(previous) != age || depth >= getDepth(previous)
+				|| (keys[slot] ^ previous) == key) {
+			long entry = (score & 0xFFFFFFFFL) | ((long) (move & 0xFFFF) << 32) | ((long) (depth & 0xFF) << 48)
+					| ((long) age << 56) | ((long) type << 60);
+			entries[slot] = entry;
+			keys[slot] = key ^ entry;
+		}
+	}
+
+	// Starting a new search: the entries stored from now on replace the older
+	// ones whatever their depth.
+	public void newSearch() {
+		age = (age + 1) & 0xF;
+	}
+
+	public void clear() {
+		for (int slot = 0; slot < entries.length; slot++) {
+			entries[slot] = MISS;
+			keys[slot] = 0;
+		}
+	}
+
+	public static int getScore(long entry) {
+		return (int) entry;
+	}
+
+	public static int getMove(long entry) {
+		return (int) (entry >>> 32) & 0xFFFF;
+	}
+
+	public static int getDepth(long entry) {
+		return (int) (entry >>> 48) & 0xFF;
+	}
+
+	public static int getAge(long entry) {
+		return (int) (entry >>> 56) & 0xF;
+	}
+
+	public static int getType(long entry) {
+		return (int) (entry >>> 60) & 0x3;
+	}
+
+	public int getSize() {
+		return entries.length;
+	}
+}
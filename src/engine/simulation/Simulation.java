@@ -1,15 +1,13 @@
 package engine.simulation;
 
-import java.util.ArrayList;
-
 import board.Board;
 import board.components.Piece;
+import engine.AttackMap;
 import engine.MainEngine;
-import engine.MovementValidator;
 import engine.visitor.RuleEvaluator;
 import intelligence.Chesster;
 import rules.Rule;
-import stats.Match;
+import stats.MatchContext;
 import strategy.data.Coordinates;
 
 /**
@@ -26,9 +24,17 @@ import strategy.data.Coordinates;
  * In {@link Chesster}, the game's AI, the simulation is used to know if a move
  * can put the enemy player in check and generate behaviour.
  * 
+ * The copy is only made when reset() is called, i.e once per position of the
+ * playing board. Every simulated move is made with {@link Board#makeMove} and
+ * taken back with {@link Board#unmakeMove} so that the simulated board is back
+ * to the copied position after each call to simulate(). The check is read
+ * from an {@link AttackMap}, built once per copy and updated by each simulated
+ * move.
+ * 
  * @see MainEngine
  * @see Chesster
  * @see Board
+ * @see AttackMap
  * @see Rule
  * @see RuleEvaluator
  * @see Piece
@@ -37,55 +43,44 @@ import strategy.data.Coordinates;
  */
 public class Simulation {
 
-	// Regrouping the data extracted from the playing board.
-	private ArrayList<Piece> curentplayerpieces = new ArrayList<Piece>();
-	private ArrayList<Piece> waitingplayerpieces = new ArrayList<Piece>();
-	private Piece curentplayerwincondition = null;
-	private Piece waitingplayerwincondition = null;
+	// The match whose playing board is copied.
+	private MatchContext context = null;
 
 	// The copy of the playing board.
 	private Board simulation = new Board();
 
-	public Simulation() {
-		// TODO Auto-generated constructor stub
+	/**
+	 * The covered zone of the pieces of the current player on the simulated
+	 * board, only the pieces reached by a simulated move are evaluated again.
+	 */
+	private AttackMap attackmap = new AttackMap(simulation);
+
+	// The attack map is only built when a move is simulated on the copy.
+	private Boolean attackmapbuilt = false;
+
+	public Simulation(MatchContext context) {
+		this.context = context;
 		reset();
 	}
 
-	// Making a copy of the playing board.
+	// Making a copy of the playing board, this must be done every time the
+	// playing board changes.
 	public void reset() {
 
-		curentplayerpieces.clear();
-		waitingplayerpieces.clear();
-		curentplayerwincondition = null;
-		waitingplayerwincondition = null;
-
-		simulation.getUnits().clear();
-		simulation.setEnvironement(Match.getBoard().getEnvironement());
+		simulation.clearUnits();
+		simulation.setEnvironement(context.getBoard().getEnvironement());
+		simulation.setSideToMove(context.getBoard().getSideToMove());
 
-		for (Piece piece : Match.getBoard().getUnits().values()) {
-			simulation.addPiece(new Piece(piece.getType(), piece.getCoordonates(), piece.getColor()));
+		for (Piece piece : context.getBoard().getPieces()) {
+			simulation.addPiece(new Piece(piece));
 		}
 
-		for (Piece piece : simulation.getUnits().values()) {
-			if (piece.getColor().equals(Match.getInstance().getCurrentplayer().getColor())) {
-				if (piece.getWincondition()) {
-					curentplayerwincondition = piece;
-				} else {
-					curentplayerpieces.add(piece);
-				}
-			} else {
-				if (piece.getWincondition()) {
-					waitingplayerwincondition = piece;
-				} else {
-					waitingplayerpieces.add(piece);
-				}
-			}
-		}
+		attackmapbuilt = false;
 	}
 
 	/**
 	 * This method is used to move a piece from the coodinates initial to the
-	 * coordonates end.
+	 * coordonates end. The move is taken back before returning.
 	 * 
 	 * @param initial
 	 * @param end
@@ -93,41 +88,38 @@ public class Simulation {
 	 *         move, else false.
 	 */
 	public Boolean simulate(Coordinates initial, Coordinates end) {
+		return simulate(Board.square(initial.getX(), initial.getY()), Board.square(end.getX(), end.getY()));
+	}
 
-		Boolean validity = true;
-
-		// Making the move on the simulated board
-		simulation.movePiece(initial, end);
-
-		/**
-		 * Giving the board with the move done to the {@link MovementValidator}
-		 * for validation of all the deplacements.
-		 */
-		MovementValidator.getInstance().setBoard(simulation);
-		MovementValidator.getInstance().clearCoveredZone();
-
-		for (Piece piece : curentplayerpieces) {
-
-			/**
-			 * Generating the possible moves of all the pieces of the current
-			 * player, if the {@link MovementValidator} return true for a piece,
-			 * it means that after the simulated deplacement, the player who
-			 * made the move is in check; thus, the validity of the move is
-			 * false.
-			 */
-			if (MovementValidator.getInstance().generatePieceMovements(piece)) {
-				validity = false;
-			}
+	/**
+	 * The same simulation, the move is given by its squares.
+	 * 
+	 * @param from
+	 * @param to
+	 * @return true if the playing who makes the move isn't in check after the
+	 *         move, else false.
+	 */
+	public Boolean simulate(int from, int to) {
+		if (!attackmapbuilt) {
+			attackmap.reset(context.getCurrentplayer().getColor());
+			attackmapbuilt = true;
 		}
 
 		/**
-		 * Same as above but for the Winning condition.
+		 * Making the move on the simulated board, the {@link AttackMap}
+		 * evaluates again the pieces of the current player reached by the
+		 * move. If one of them checks, the player who made the move is in
+		 * check; thus, the validity of the move is false. A piece taken by
+		 * the simulated move is removed from the map.
 		 */
-		if (MovementValidator.getInstance().generatePieceMovements(curentplayerwincondition)) {
-			validity = false;
-		}
+		simulation.makeMove(from, to);
+		attackmap.update(from, to);
+
+		Boolean validity = !attackmap.isChecking();
 
-		MovementValidator.getInstance().clearCoveredZone();
+		// Taking the move back.
+		simulation.unmakeMove();
+		attackmap.undo();
 		return validity;
 	}
 
@@ -1,10 +1,8 @@
 package engine.visitor;
 
 import java.util.Iterator;
-import java.util.LinkedList;
 
 import board.Board;
-import board.BoardParameters;
 import board.components.Piece;
 import compiler.lang.Grammar;
 import compiler.lang.ValidityGrammar;
@@ -13,8 +11,8 @@ import rules.FinalPositionGroundTypeRule;
 import rules.JumpRule;
 import rules.PieceTypeAlignmentRule;
 import rules.Rule;
-import stats.Match;
 import strategy.data.Coordinates;
+import strategy.data.MoveTable;
 import strategy.data.MovementPatern;
 import strategy.data.TaggedPath;
 
@@ -28,7 +26,8 @@ import strategy.data.TaggedPath;
  * {@link ValidityGrammar}.
  * 
  * The different methods are called by the {@link MovementValidator} to check
- * for validity of each move according to a set of rules. Data
+ * for validity of each move according to a set of rules. The moves are given
+ * as compiled paths {@link MoveTable}: arrays of square indexes.
  * 
  * @see Rule
  * @see Piece
@@ -47,8 +46,8 @@ import strategy.data.TaggedPath;
  */
 public class RuleEvaluator implements Evaluator<Integer> {
 
-	Coordinates piececoordonates = new Coordinates();
-	LinkedList<Coordinates> path = new LinkedList<Coordinates>();
+	int piecesquare = 0;
+	int[] path = null;
 	String piececolor = "";
 	Piece piece = null;
 	Board board = null;
@@ -57,8 +56,19 @@ public class RuleEvaluator implements Evaluator<Integer> {
 
 	}
 
-	public void setContext(Coordinates piececoordonates, LinkedList<Coordinates> path, Piece piece, Board board) {
-		this.piececoordonates = piececoordonates;
+	/**
+	 * Setting the context of the evaluation.
+	 * 
+	 * @param piecesquare
+	 *            the square the rules are applied from.
+	 * @param path
+	 *            the compiled path of the move, its last square is the final
+	 *            position of the move.
+	 * @param piece
+	 * @param board
+	 */
+	public void setContext(int piecesquare, int[] path, Piece piece, Board board) {
+		this.piecesquare = piecesquare;
 		this.path = path;
 		this.piececolor = piece.getColor();
 		this.piece = piece;
@@ -74,25 +84,18 @@ public class RuleEvaluator implements Evaluator<Integer> {
 		int validity = 0;
 		int piececount = 0;
 
-		Iterator<Coordinates> pathiterator = path.iterator();
-
-		// Creating a copy of the piece's coordinates to be able to work with
-		// them.
-		Coordinates position = new Coordinates(piececoordonates.getX(), piececoordonates.getY());
-
-		Coordinates increment = null;
-		Piece piece = board.getPiece(position);
-
-		// Calculating the final position of the move, a piece might not be able
-		// to jump directly from a position to another but follow a path.
-		while (pathiterator.hasNext()) {
-			increment = pathiterator.next();
-			position.setX(position.getX() + increment.getX());
-			position.setY(position.getY() + increment.getY());
+		Piece piece = board.getPiece(piecesquare);
 
-			piece = board.getPiece(position);
+		// Following the path of the move, a piece might not be able to jump
+		// directly from a position to another but follow a path.
+		for (int square : path) {
+			if (square != MoveTable.OFF_BOARD) {
+				piece = board.getPiece(square);
+			} else {
+				piece = null;
+			}
 
-			if (piece != null && !piece.equals(this.piece)) {
+			if (piece != null && piece != this.piece) {
 				piececount++;
 			}
 		}
@@ -115,8 +118,7 @@ public class RuleEvaluator implements Evaluator<Integer> {
 							validity = ValidityGrammar.NOT_VALID;
 						}
 
-						else if (piececount == rule.getJumpcount() + 1
-								&& piece.getColor().equals(Match.getInstance().getWaitingplayer().getColor())) {
+						else if (piececount == rule.getJumpcount() + 1) {
 							validity = ValidityGrammar.CHECK;
 						}
 					} else {
@@ -179,18 +181,14 @@ public class RuleEvaluator implements Evaluator<Integer> {
 		else {
 			int validity = ValidityGrammar.CAN_EAT;
 
-			// Recovering the final position of the move
-			Coordinates position = getFinalPosition(piece.getCoordonates(), path);
-
-			if (isInbounds(position)) {
-				if (!rule.getGroundtypes().contains(board.getGround(position).getName())) {
-					// Checking if it is forbidden for the piece to be on that
-					// type of ground
-					validity = ValidityGrammar.NOT_VALID;
-				}
-			}
+			// Recovering the final position of the move, the compiled paths
+			// always end on the board.
+			int position = path[path.length - 1];
 
-			else {
+			if (!rule.getGroundtypes()
+					.contains(board.getGround(Board.squareX(position), Board.squareY(position)).getName())) {
+				// Checking if it is forbidden for the piece to be on that
+				// type of ground
 				validity = ValidityGrammar.NOT_VALID;
 			}
 			return validity;
@@ -229,18 +227,20 @@ public class RuleEvaluator implements Evaluator<Integer> {
 				path = pathlistiterator.next();
 				if (path.getTag().getColor().equals(piececolor) || path.getTag().getColor().equals(Grammar.MACRO_ALL)) {
 					Iterator<Coordinates> pathiterator = path.getPath().iterator();
-					Coordinates position = new Coordinates(piececoordonates.getX(), piececoordonates.getY());
+					int x = Board.squareX(piecesquare);
+					int y = Board.squareY(piecesquare);
 					Coordinates increment = null;
 
 					while (pathiterator.hasNext() && !stopcondition) {
 						increment = pathiterator.next();
-						position.setX(position.getX() + increment.getX());
-						position.setY(position.getY() + increment.getY());
-
-						if (isInbounds(position)) {
-							if (board.getPiece(position) != null) {
-								if (rule.getPiecetypes().contains(board.getPiece(position).getType())
-										&& !board.getPiece(position).getColor().equals(piececolor)) {
+						x += increment.getX();
+						y += increment.getY();
+						Piece encountered = board.getPiece(x, y);
+
+						if (Board.square(x, y) != MoveTable.OFF_BOARD) {
+							if (encountered != null) {
+								if (rule.getPiecetypes().contains(encountered.getType())
+										&& !encountered.getColor().equals(piececolor)) {
 									// If a forbidden piece type is encountered,
 									// the movement isn't valid.
 									validity = ValidityGrammar.NOT_VALID;
@@ -262,28 +262,4 @@ public class RuleEvaluator implements Evaluator<Integer> {
 		}
 	}
 
-	// Checks if a position is on the board.
-	private Boolean isInbounds(Coordinates coordonates) {
-		return coordonates.getX() < BoardParameters.BOARD_X_LENGTH && coordonates.getX() >= 0
-				&& coordonates.getY() < BoardParameters.BOARD_Y_LENGTH && coordonates.getY() >= 0;
-
-	}
-
-	// Calculates the final position of a move
-	private Coordinates getFinalPosition(Coordinates pieceposition, LinkedList<Coordinates> path) {
-
-		Coordinates position = new Coordinates(pieceposition.getX(), pieceposition.getY());
-		Coordinates increment = null;
-
-		Iterator<Coordinates> pathiterator = path.iterator();
-
-		while (pathiterator.hasNext()) {
-			increment = pathiterator.next();
-			position.setX(position.getX() + increment.getX());
-			position.setY(position.getY() + increment.getY());
-		}
-
-		return position;
-	}
-
 }
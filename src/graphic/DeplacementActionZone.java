@@ -3,7 +3,6 @@ package graphic;
 import java.awt.event.MouseEvent;
 
 import board.components.Piece;
-import engine.MainEngine;
 import stats.Match;
 import strategy.data.Coordinates;
 
@@ -70,7 +69,7 @@ public class DeplacementActionZone extends ActionZone {
 			BoardGraphic.getInstance().clearPieceSelectionZones();
 
 			// Making the enemy player play
-			MainEngine.engine.newTurn();
+			Match.getInstance().getEngine().newTurn();
 		}
 
 		// Repainting the graphics.
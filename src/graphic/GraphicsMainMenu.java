@@ -20,6 +20,8 @@ import compiler.interpreters.GroundSettingsCompiler;
 import compiler.interpreters.PieceSettingsCompiler;
 import engine.MainEngine;
 import intelligence.Chesster;
+import intelligence.EndgameTablebase;
+import intelligence.OpeningBook;
 import stats.Match;
 import test.io.InOutParameters;
 
@@ -254,12 +256,24 @@ public class GraphicsMainMenu extends JFrame {
 			BoardSettingsCompiler bsc = new BoardSettingsCompiler();
 			bsc.loadSettings(boardpath);
 
+			/**
+			 * Giving Chesster the opening book and the endgame tables of the
+			 * selected board, if the board has them.
+			 * 
+			 * @see OpeningBook
+			 * @see EndgameTablebase
+			 */
+			if (selectedmode.equals("IA")) {
+				((Chesster) Match.getInstance().getPlayer2()).setBook(OpeningBook.open(boardpath));
+				((Chesster) Match.getInstance().getPlayer2()).setTablebase(EndgameTablebase.open(boardpath));
+			}
+
 			/**
 			 * Initializing the game for the first turn.
 			 * 
 			 * @see MainEngine
 			 */
-			MainEngine.engine.newTurn();
+			Match.getInstance().getEngine().newTurn();
 
 			/**
 			 * Creating the game window.
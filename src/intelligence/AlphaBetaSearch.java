@@ -0,0 +1,243 @@
+package intelligence;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import board.Board;
+import engine.MoveGenerator;
+import engine.TranspositionTable;
+import stats.Match;
+
+/**
+ * This class is the search engine of {@link Chesster}. It is a negamax search
+ * with alpha-beta pruning and iterative deepening: the search is made at depth
+ * 1, 2, 3... until the time budget of the move is spent or the maximum depth
+ * is reached. The best move of the last complete iteration is played.
+ *
+ * The search can use several threads (lazy SMP): a {@link SearchWorker} is
+ * started for each thread in a ForkJoinPool, all the workers search the same
+ * root and share the transposition table, the move of the worker which
+ * completed the deepest iteration is played. With one thread, the worker runs
+ * in the calling thread and the search is deterministic for a given depth.
+ *
+ * The search never touches the playing board of the {@link Match}, it works on
+ * a private copy of the board with {@link Board#makeMove} and
+ * {@link Board#unmakeMove}. The moves of the root are the packed moves (see
+ * {@link MoveGenerator}) ordered by Chesster, they are searched in the given
+ * order (highest priority first) and the best move of each iteration is
+ * searched first in the next one.
+ *
+ * The scores of the searched positions are kept from a move to an other in a
+ * {@link TranspositionTable}, the best move of a position found in the table
+ * is searched first.
+ *
+ * @see Chesster
+ * @see SearchWorker
+ * @see MoveGenerator
+ * @see TranspositionTable
+ * @author Dorian CHENET
+ *
+ */
+public class AlphaBetaSearch {
+
+	// The default time budget of a move, in milliseconds.
+	public static final long DEFAULT_TIME_BUDGET = 1000;
+
+	// The maximum depth of the iterative deepening.
+	public static final int DEFAULT_MAX_DEPTH = 32;
+
+	// The default number of threads of the search.
+	public static final int DEFAULT_THREADS = 1;
+
+	// The default number of nodes of a quiescence search, started at each
+	// leaf of the search.
+	public static final int DEFAULT_QUIESCENCE_NODES = 2048;
+
+	// The score of a position where the player to move has lost.
+	public static final int MATE = 1000000;
+
+	static final int INFINITY = MATE + 1;
+
+	// The scores above this bound (or under its opposite) are mate scores.
+	static final int MATE_BOUND = MATE - 1000;
+
+	// The default number of slots of the transposition table.
+	public static final int DEFAULT_TABLE_SIZE = 1 << 20;
+
+	private long timebudget = DEFAULT_TIME_BUDGET;
+	private int maxdepth = DEFAULT_MAX_DEPTH;
+	private int threads = DEFAULT_THREADS;
+	private int quiescencenodes = DEFAULT_QUIESCENCE_NODES;
+
+	// The transposition table, created at the first search when it is not
+	// given: a Chesster which never searches does not hold one.
+	private TranspositionTable table = null;
+	private int tablesize = DEFAULT_TABLE_SIZE;
+
+	// The pool of the workers, created when more than one thread is used.
+	private ForkJoinPool pool = null;
+
+	private long nodes = 0;
+
+	public AlphaBetaSearch() {
+
+	}
+
+	public AlphaBetaSearch(long timebudget, int maxdepth) {
+		this.timebudget = timebudget;
+		this.maxdepth = maxdepth;
+	}
+
+	public AlphaBetaSearch(long timebudget, int maxdepth, TranspositionTable table) {
+		this.timebudget = timebudget;
+		this.maxdepth = maxdepth;
+		this.table = table;
+	}
+
+	/**
+	 * This method searches the best move among the moves of the root.
+	 *
+	 * @param playingboard
+	 *            the board to search from, it is copied by each worker.
+	 * @param color
+	 *            the color of the player to move.
+	 * @param rootmoves
+	 *            the legal moves of the player, sorted by decreasing priority.
+	 * @param count
+	 *            the number of moves at the beginning of rootmoves.
+	 * @return the best move found, 0 if there is no move.
+	 */
+	public int search(Board playingboard, String color, int[] rootmoves, int count) {
+		if (count == 0) {
+			return 0;
+		}
+
+		// The workers read their own copy of the moves.
+		int[] moves = Arrays.copyOf(rootmoves, count);
+
+		if (table == null) {
+			table = new TranspositionTable(tablesize);
+		}
+		table.newSearch();
+		long deadline = System.nanoTime() + timebudget * 1000000L;
+		SearchWorker result = null;
+		nodes = 0;
+
+		if (threads <= 1) {
+			result = new SearchWorker(playingboard, color, moves, table, 1, maxdepth, deadline);
+			result.setQuiescencenodes(quiescencenodes);
+			result.call();
+			nodes = result.getNodes();
+		}
+
+		else {
+			if (pool == null || pool.getParallelism() != threads) {
+				if (pool != null) {
+					pool.shutdown();
+				}
+				pool = new ForkJoinPool(threads);
+			}
+
+			// The workers are created in this thread, the playing board is
+			// not read by the other threads.
+			ArrayList<SearchWorker> workers = new ArrayList<SearchWorker>();
+			for (int index = 0; index < threads; index++) {
+				SearchWorker worker = new SearchWorker(playingboard, color, moves, table, 1 + (index & 1), maxdepth,
+						deadline);
+				worker.setQuiescencenodes(quiescencenodes);
+				workers.add(worker);
+			}
+
+			for (Future<SearchWorker> future : pool.invokeAll(workers)) {
+				try {
+					SearchWorker worker = future.get();
+					nodes += worker.getNodes();
+					if (result == null || worker.getCompleteddepth() > result.getCompleteddepth()) {
+						result = worker;
+					}
+				} catch (InterruptedException e) {
+					// The search is stopped, the workers already read are
+					// kept.
+					Thread.currentThread().interrupt();
+				} catch (ExecutionException e) {
+					throw new IllegalStateException("Search failed", e.getCause());
+				}
+			}
+		}
+
+		// Only an interrupted search has no result, it plays the move of the
+		// highest priority.
+		if (result == null) {
+			return moves[0];
+		}
+		return moves[result.getBest()];
+	}
+
+	/**
+	 * Stopping the threads of the search once it is not used anymore. The
+	 * search can still be used, the threads are started again by the next
+	 * search with more than one thread.
+	 */
+	public void close() {
+		if (pool != null) {
+			pool.shutdown();
+			pool = null;
+		}
+	}
+
+	public long getTimebudget() {
+		return timebudget;
+	}
+
+	public void setTimebudget(long timebudget) {
+		this.timebudget = timebudget;
+	}
+
+	public int getMaxdepth() {
+		return maxdepth;
+	}
+
+	public void setMaxdepth(int maxdepth) {
+		this.maxdepth = maxdepth;
+	}
+
+	public int getThreads() {
+		return threads;
+	}
+
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	// The number of nodes of a quiescence search, 0 to evaluate the leaves
+	// without it.
+	public int getQuiescencenodes() {
+		return quiescencenodes;
+	}
+
+	public void setQuiescencenodes(int quiescencenodes) {
+		this.quiescencenodes = quiescencenodes;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	// The transposition table, null before the first search if it was not
+	// given.
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	// The number of slots of the table created at the first search.
+	public int getTablesize() {
+		return tablesize;
+	}
+
+	public void setTablesize(int tablesize) {
+		this.tablesize = tablesize;
+	}
+}
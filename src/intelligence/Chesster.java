@@ -1,14 +1,18 @@
 package intelligence;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 
+import board.Board;
 import board.components.Piece;
 import engine.MainEngine;
+import engine.MoveGenerator;
+import engine.StaticExchange;
 import engine.simulation.Simulation;
 import graphic.BoardGUI;
 import graphic.GraphicsMainMenu;
 import stats.Match;
+import stats.MatchContext;
 import stats.Player;
 import strategy.data.Coordinates;
 
@@ -18,24 +22,39 @@ import strategy.data.Coordinates;
  * AI, in {@link GraphicsMainMenu}, the player has the possibility to choose
  * between playing against an other player or against Chesster. If the player
  * chooses to play against Chesster, it is set as the second player in
- * {@link Match}. Chesster uses {@link PriorityMove} to make decisions on what
- * to play.
+ * {@link Match}. Chesster plays in the match of its {@link MatchContext}.
+ * Chesster uses {@link PriorityMove} to order its moves, then the
+ * {@link AlphaBetaSearch} decides what to play within a time budget.
  * 
  * @see Player
  * @see GraphicsMainMenu
  * @see Match
  * @see PriorityMove
+ * @see AlphaBetaSearch
+ * @see OpeningBook
+ * @see EndgameTablebase
  * @author Dorian CHENET
  *
  */
 public class Chesster extends Player {
 
+	// The time budget of a move, in milliseconds. Chesster plays on the event
+	// thread of the game window, which is not painted while it searches: the
+	// tools which need a stronger Chesster give it their own search.
+	public static final long TIME_BUDGET = 100;
+
+	// The match Chesster plays in.
+	private MatchContext context = null;
+
 	/**
-	 * Here is a list of all the moves Chesster can make.
+	 * Here are all the moves Chesster can make, packed in ints with their
+	 * priority (see {@link MoveGenerator}). The buffers are reused from a turn
+	 * to an other.
 	 * 
 	 * @see PriorityMove
 	 */
-	private LinkedList<PriorityMove> possiblemoves = new LinkedList<PriorityMove>();
+	private int[] possiblemoves = new int[64];
+	private int movecount = 0;
 
 	/**
 	 * This {@link Simulation} is used by Chesster to see if he can put the
@@ -43,12 +62,47 @@ public class Chesster extends Player {
 	 * 
 	 * @see Simulation
 	 */
-	private Simulation simulation = new Simulation();
+	private Simulation simulation = null;
 
-	public Chesster(String color, ArrayList<Piece> pieces, ArrayList<Piece> takenpieces, ArrayList<Piece> lostpieces) {
-		super("Chesster", color, pieces, takenpieces, lostpieces);
+	/**
+	 * The exchanges started by the captures are evaluated on the board of the
+	 * simulation. Its attack maps are built at the first capture of a turn.
+	 * 
+	 * @see StaticExchange
+	 */
+	private StaticExchange exchange = null;
+	private Boolean exchangebuilt = false;
 
-		// TODO Auto-generated constructor stub
+	/**
+	 * The search engine used to choose the move to play among the possible
+	 * moves.
+	 * 
+	 * @see AlphaBetaSearch
+	 */
+	private AlphaBetaSearch search = new AlphaBetaSearch(TIME_BUDGET, AlphaBetaSearch.DEFAULT_MAX_DEPTH);
+
+	/**
+	 * The opening book of the board, null if there is none: its moves are
+	 * played without searching.
+	 * 
+	 * @see OpeningBook
+	 */
+	private OpeningBook book = null;
+
+	/**
+	 * The endgame tables of the board, null if there are none: in their
+	 * endings, Chesster plays their best move.
+	 * 
+	 * @see EndgameTablebase
+	 */
+	private EndgameTablebase tablebase = null;
+
+	public Chesster(MatchContext context, String color, ArrayList<Piece> pieces, ArrayList<Piece> takenpieces,
+			ArrayList<Piece> lostpieces) {
+		super("Chesster", color, pieces, takenpieces, lostpieces);
+		this.context = context;
+		this.simulation = new Simulation(context);
+		this.exchange = new StaticExchange(simulation.getBoard());
 	}
 
 	/**
@@ -57,14 +111,56 @@ public class Chesster extends Player {
 	 * @see MainEngine
 	 */
 	public void play() {
+		PriorityMove move = selectMove();
+		if (move != null) {
+			playMove(move);
+		}
+
+		/*
+		 * Making a new turn / letting the opposite player play. Only the match
+		 * of the game window is painted.
+		 */
+		if (context == Match.getInstance()) {
+			BoardGUI.getInstance().repaint();
+		}
+		context.getEngine().newTurn();
+	}
+
+	/**
+	 * This method chooses the move Chesster plays in the current position,
+	 * without playing it.
+	 * 
+	 * @return the move to play, null if Chesster cannot move.
+	 */
+	public PriorityMove selectMove() {
 
 		// Clearing all the moves Chesster was able to play on its last turn.
-		possiblemoves.clear();
+		movecount = 0;
+
+		// Copying the playing board for the simulations of this turn.
+		simulation.reset();
+		exchangebuilt = false;
 
 		// Creating a list of all the possible moves Chesster can make this
 		// current turn.
 		generatePossibleChoices();
 
+		// The moves of the opening book are played at once.
+		if (book != null && movecount > 0) {
+			int bookmove = book.probe(context.getBoard(), possiblemoves, movecount);
+			if (bookmove != 0) {
+				return new PriorityMove(bookmove);
+			}
+		}
+
+		// So are the moves of the endgame tables.
+		if (tablebase != null && movecount > 0) {
+			int tablemove = tablebase.selectMove(simulation.getBoard(), possiblemoves, movecount);
+			if (tablemove != 0) {
+				return new PriorityMove(tablemove);
+			}
+		}
+
 		// Evaluating the priority of each move to see which is the most
 		// interesting to play.
 		evaluateMovesPriority();
@@ -76,17 +172,18 @@ public class Chesster extends Player {
 		sort();
 
 		/*
-		 * We take the move which is on the top of the stack and play it.
+		 * The search starts with the move which is on the top of the stack
+		 * and returns the best move it finds.
 		 */
-		if (!possiblemoves.isEmpty()) {
-			makeTheMove(possiblemoves.getFirst());
+		if (movecount == 0) {
+			return null;
 		}
+		return new PriorityMove(search.search(context.getBoard(), super.getColor(), possiblemoves, movecount));
+	}
 
-		/*
-		 * Making a new turn / letting the opposite player play.
-		 */
-		BoardGUI.getInstance().repaint();
-		MainEngine.engine.newTurn();
+	// Playing a move chosen by selectMove(), the turn is not changed.
+	public void playMove(PriorityMove move) {
+		makeTheMove(move);
 	}
 
 	/**
@@ -98,51 +195,52 @@ public class Chesster extends Player {
 	 * @see PriorityMove
 	 */
 	private void evaluateMovesPriority() {
-		// Recovering the zone where the enemy can eat pieces.
-		ArrayList<Coordinates> enemycoveredzone = getEnemyCoveredZone();
-
 		// Generating the priority for each move.
-		for (PriorityMove move : possiblemoves) {
+		for (int index = 0; index < movecount; index++) {
+			int move = possiblemoves[index];
 			int newpriority = 0;
-			Piece chessterpiece = Match.getBoard().getPiece(move.getInitial());
-			Piece finalpiece = Match.getBoard().getPiece(move.getFinalposition());
+			Piece chessterpiece = context.getBoard().getPiece(MoveGenerator.from(move));
+			Piece finalpiece = context.getBoard().getPiece(MoveGenerator.to(move));
 
 			// If the move ends on an enemy piece, use these conditions.
 			if (finalpiece != null) {
+				int balance = evaluateExchange(move);
 
 				/**
-				 * If it is possible to take a piece with a greater weight than
-				 * the piece we want to play, it is interesting, +2 priority.
+				 * If the exchange of pieces started by the capture wins weight
+				 * (the taken pieces are heavier than the lost ones), it is
+				 * interesting, +2 priority.
 				 * 
 				 * @see Piece
+				 * @see StaticExchange
 				 */
-				if (chessterpiece.getWeight() < finalpiece.getWeight()) {
+				if (balance > 0) {
 					newpriority += 2;
 				}
 
 				/*
-				 * If the piece is of a lesser weight than the one we want to
-				 * play then it is less interesting but still, +1 priority.
+				 * If the exchange is even, it is less interesting but still, +1
+				 * priority.
 				 */
-				else {
+				else if (balance == 0) {
 					newpriority++;
 				}
 
 				/*
-				 * If in addition of taking an enemy piece, we can put the enemy
-				 * player in check then it is interesting, +2 priority.
+				 * If the enemy player wins the exchange, we lose weight so it is
+				 * less interesting, -1 priority.
 				 */
-				if (checks(move)) {
-					newpriority += 2;
+				else {
+					newpriority--;
 				}
 
 				/*
-				 * If the enemy player is able to eat a piece in the slot we are
-				 * about to place our piece then we might lose it the next turn
-				 * so it is less interesting, -1 priority.
+				 * If in addition of taking an enemy piece without losing
+				 * weight, we can put the enemy player in check then it is
+				 * interesting, +2 priority.
 				 */
-				if (enemycoveredzone.contains(move.getFinalposition())) {
-					newpriority--;
+				if (balance >= 0 && checks(move)) {
+					newpriority += 2;
 				}
 			}
 
@@ -154,7 +252,7 @@ public class Chesster extends Player {
 					newpriority += 2;
 				}
 
-				else if (Match.getBoard().getPiece(move.getInitial()).getWeight() == 1) {
+				else if (chessterpiece.getWeight() == 1) {
 					newpriority++;
 				}
 
@@ -164,36 +262,42 @@ public class Chesster extends Player {
 			}
 
 			// Setting the new priority.
-			move.setPriority(newpriority);
+			possiblemoves[index] = MoveGenerator.withScore(move, newpriority);
 		}
 	}
 
 	/**
-	 * @return A list of all the positions where the enemy player can eat
-	 *         pieces.
+	 * @param move
+	 *            a capture.
+	 * @return the weight Chesster wins at the end of the exchange started by
+	 *         the capture, negative if it loses weight.
+	 * @see StaticExchange
 	 */
-	private ArrayList<Coordinates> getEnemyCoveredZone() {
-		ArrayList<Coordinates> coveredzone = new ArrayList<Coordinates>();
-		for (Piece piece : Match.getInstance().getWaitingplayer().getPieces()) {
-			coveredzone.addAll(piece.getPossiblemoves());
+	private int evaluateExchange(int move) {
+		if (!exchangebuilt) {
+			exchange.reset();
+			exchangebuilt = true;
 		}
-		return coveredzone;
+		return exchange.evaluate(MoveGenerator.from(move), MoveGenerator.to(move));
 	}
 
-	// Sorting all the possible moves in a decreasing priority order.
+	/**
+	 * Sorting all the possible moves in a decreasing priority order, the moves
+	 * of a same priority keep the order they were generated in. Each move is
+	 * kept once: the search reorders the moves it searches (see
+	 * {@link MovePicker}), this order is only the one of its first iteration.
+	 */
 	private void sort() {
-		LinkedList<PriorityMove> sortedmoves = new LinkedList<PriorityMove>();
-		while (sortedmoves.size() < possiblemoves.size()) {
-			PriorityMove highestprioritymove = null;
-			for (PriorityMove move : possiblemoves) {
-				if (highestprioritymove == null
-						|| highestprioritymove.getPriority() < move.getPriority() && !sortedmoves.contains(move)) {
-					highestprioritymove = move;
-				}
+		// Insertion sort, the list is short and nearly sorted by piece.
+		for (int index = 1; index < movecount; index++) {
+			int move = possiblemoves[index];
+			int position = index;
+			while (position > 0 && MoveGenerator.score(possiblemoves[position - 1]) < MoveGenerator.score(move)) {
+				possiblemoves[position] = possiblemoves[position - 1];
+				position--;
 			}
-			sortedmoves.addLast(highestprioritymove);
+			possiblemoves[position] = move;
 		}
-		possiblemoves = sortedmoves;
 	}
 
 	/**
@@ -205,22 +309,30 @@ public class Chesster extends Player {
 	private void generatePossibleChoices() {
 
 		for (Piece piece : super.getPieces()) {
-			for (Coordinates coordonates : piece.getPossiblemoves()) {
-				PriorityMove move = new PriorityMove(piece.getCoordonates(), coordonates, 0);
-				if (Match.getBoard().getPiece(coordonates) == null) {
-					possiblemoves.add(move);
-				} else if (!Match.getBoard().getPiece(coordonates).getColor().equals(super.getColor())) {
-					possiblemoves.add(move);
-				}
-			}
+			generatePossibleChoices(piece);
 		}
 
-		for (Coordinates coordinates : super.getWinconditionpiece().getPossiblemoves()) {
-			PriorityMove move = new PriorityMove(super.getWinconditionpiece().getCoordonates(), coordinates, 0);
-			if (Match.getBoard().getPiece(coordinates) == null) {
-				possiblemoves.add(move);
-			} else if (!Match.getBoard().getPiece(coordinates).getColor().equals(super.getColor())) {
-				possiblemoves.add(move);
+		generatePossibleChoices(super.getWinconditionpiece());
+	}
+
+	// Adding the moves of a piece, a move cannot end on a piece of Chesster.
+	private void generatePossibleChoices(Piece piece) {
+		int from = piece.getSquare();
+
+		for (Coordinates coordonates : piece.getPossiblemoves()) {
+			int to = Board.square(coordonates.getX(), coordonates.getY());
+			Piece target = context.getBoard().getPiece(to);
+
+			if (movecount == possiblemoves.length) {
+				possiblemoves = Arrays.copyOf(possiblemoves, movecount * 2);
+			}
+
+			if (target == null) {
+				possiblemoves[movecount] = MoveGenerator.encode(from, to);
+				movecount++;
+			} else if (target.getColorid() != piece.getColorid()) {
+				possiblemoves[movecount] = MoveGenerator.encodeCapture(from, to, target.getWeight());
+				movecount++;
 			}
 		}
 	}
@@ -231,10 +343,10 @@ public class Chesster extends Player {
 	 * @param move
 	 */
 	private void makeTheMove(PriorityMove move) {
-		Match.getInstance().getWaitingplayer().getLostpieces().add(Match.getBoard().getPiece(move.getFinalposition()));
-		Match.getInstance().getWaitingplayer().getPieces().remove(Match.getBoard().getPiece(move.getFinalposition()));
-		super.getTakenpieces().add(Match.getBoard().getPiece(move.getFinalposition()));
-		Match.getBoard().movePiece(move.getInitial(), move.getFinalposition());
+		context.getWaitingplayer().getLostpieces().add(context.getBoard().getPiece(move.getFinalposition()));
+		context.getWaitingplayer().getPieces().remove(context.getBoard().getPiece(move.getFinalposition()));
+		super.getTakenpieces().add(context.getBoard().getPiece(move.getFinalposition()));
+		context.getBoard().movePiece(move.getInitial(), move.getFinalposition());
 	}
 
 	/**
@@ -245,18 +357,57 @@ public class Chesster extends Player {
 	 * @param move
 	 * @return true if the enemy player is checked after the move, else false.
 	 */
-	private Boolean checks(PriorityMove move) {
-		simulation.reset();
-		simulation.simulate(move.getInitial(), move.getFinalposition());
-		Piece piece = simulation.getBoard().getPiece(move.getFinalposition());
-		Boolean checks = false;
-		if (piece != null) {
-			if (piece.getCoveredzone()
-					.contains(Match.getInstance().getWaitingplayer().getWinconditionpiece().getCoordonates())) {
-				checks = true;
-			}
+	private Boolean checks(int move) {
+		// Chesster is the current player of the simulation, the simulated move
+		// is not "valid" when one of its pieces puts the enemy player in
+		// check.
+		return !simulation.simulate(MoveGenerator.from(move), MoveGenerator.to(move));
+	}
+
+	// The time budget of a move, in milliseconds.
+	public long getTimebudget() {
+		return search.getTimebudget();
+	}
+
+	public void setTimebudget(long timebudget) {
+		search.setTimebudget(timebudget);
+	}
+
+	// The number of threads the search uses, 1 for a deterministic search.
+	public int getThreads() {
+		return search.getThreads();
+	}
+
+	public void setThreads(int threads) {
+		search.setThreads(threads);
+	}
+
+	public AlphaBetaSearch getSearch() {
+		return search;
+	}
+
+	// The search replaced is closed.
+	public void setSearch(AlphaBetaSearch search) {
+		if (this.search != null && this.search != search) {
+			this.search.close();
 		}
-		return checks;
+		this.search = search;
+	}
+
+	public OpeningBook getBook() {
+		return book;
+	}
+
+	public void setBook(OpeningBook book) {
+		this.book = book;
+	}
+
+	public EndgameTablebase getTablebase() {
+		return tablebase;
+	}
+
+	public void setTablebase(EndgameTablebase tablebase) {
+		this.tablebase = tablebase;
 	}
 
 }
@@ -0,0 +1,220 @@
+package intelligence;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import repositories.PiecesRepository;
+import stats.MatchParameters;
+
+/**
+ * An endgame table gives the value of every position of an ending: the two
+ * pieces holding the winning condition and a few other pieces (the material
+ * of the table), with each player to move.
+ *
+ * Each piece of the material (a slot) has the list of the squares it can
+ * stand on, the index of a position is made of the side to move and of the
+ * rank of the square of each piece in the list of its slot. The two winning
+ * condition pieces come first (RED, then BLACK), then the other pieces
+ * ordered by color and type; when the material holds the same piece twice,
+ * the lowest square goes to the first slot.
+ *
+ * The value of a position is a byte, from the point of view of the player to
+ * move: 0 for a draw, d for a win in d plies, -(d + 1) for a loss in d plies
+ * (a player who has no move has lost, in 0 plies). The distances are
+ * capped at the range of a byte.
+ *
+ * @see EndgameTablebase
+ * @author Dorian CHENET
+ *
+ */
+public class EndgameTable {
+
+	public static final int DRAW = 0;
+
+	// The greatest distance kept by a value.
+	public static final int MAX_DISTANCE = Byte.MAX_VALUE;
+
+	// The type, the color and the squares of each slot.
+	private String[] types = null;
+	private String[] colors = null;
+	private int[][] squares = null;
+
+	// The ids of the type and of the color of each slot.
+	private int[] typeids = null;
+	private int[] colorids = null;
+
+	// For each slot and each square, the rank of the square in the list of
+	// the slot, -1 if the piece cannot stand on it.
+	private int[][] ranks = null;
+
+	private int size = 0;
+	private byte[] values = null;
+
+	/**
+	 * @param types
+	 *            the types of the slots.
+	 * @param colors
+	 *            the colors of the slots.
+	 * @param squares
+	 *            the squares of each slot.
+	 */
+	public EndgameTable(String[] types, String[] colors, int[][] squares) {
+		this.types = types;
+		this.colors = colors;
+		this.squares = squares;
+		this.ranks = new int[squares.length][BoardParameters.BOARD_SQUARES];
+		this.typeids = new int[types.length];
+		this.colorids = new int[colors.length];
+		for (int slot = 0; slot < types.length; slot++) {
+			typeids[slot] = PiecesRepository.getInstance().getTypeId(types[slot]);
+			colorids[slot] = MatchParameters.getColorId(colors[slot]);
+		}
+
+		size = 2;
+		for (int slot = 0; slot < squares.length; slot++) {
+			size *= squares[slot].length;
+			for (int square = 0; square < BoardParameters.BOARD_SQUARES; square++) {
+				ranks[slot][square] = -1;
+			}
+			for (int rank = 0; rank < squares[slot].length; rank++) {
+				ranks[slot][squares[slot][rank]] = rank;
+			}
+		}
+		values = new byte[size];
+	}
+
+	/**
+	 * @param board
+	 *            a position of the material of the table.
+	 * @return the index of the position, -1 if a piece stands on a square out
+	 *         of the list of its slot.
+	 */
+	public int getIndex(Board board) {
+		long[] occupancy = board.getOccupancy();
+		int[] slotsquares = new int[types.length];
+		boolean[] filled = new boolean[types.length];
+
+		for (int word = 0; word < occupancy.length; word++) {
+			long bits = occupancy[word];
+			while (bits != 0) {
+				int square = (word << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1;
+
+				Piece piece = board.getPiece(square);
+				int slot = 0;
+				while (slot < types.length && (filled[slot] || typeids[slot] != piece.getTypeid()
+						|| colorids[slot] != piece.getColorid())) {
+					slot++;
+				}
+				if (slot == types.length) {
+					return -1;
+				}
+				filled[slot] = true;
+				slotsquares[slot] = square;
+			}
+		}
+
+		int index = board.getSideToMove().equals(MatchParameters.RED_COLOR) ? 0 : 1;
+		for (int slot = 0; slot < types.length; slot++) {
+			if (!filled[slot] || ranks[slot][slotsquares[slot]] == -1) {
+				return -1;
+			}
+			index = index * squares[slot].length + ranks[slot][slotsquares[slot]];
+		}
+		return index;
+	}
+
+	/**
+	 * @param index
+	 *            the index of a position.
+	 * @param slotsquares
+	 *            filled with the square of each slot.
+	 * @return the color of the player to move.
+	 */
+	public String getPosition(int index, int[] slotsquares) {
+		for (int slot = types.length - 1; slot >= 0; slot--) {
+			slotsquares[slot] = squares[slot][index % squares[slot].length];
+			index = index / squares[slot].length;
+		}
+		return index == 0 ? MatchParameters.RED_COLOR : MatchParameters.BLACK_COLOR;
+	}
+
+	/**
+	 * @param types
+	 *            the types of the pieces of a material, without the winning
+	 *            condition pieces.
+	 * @param colors
+	 *            their colors.
+	 * @return the name of the material, which names its table.
+	 */
+	public static String getMaterial(ArrayList<String> types, ArrayList<String> colors) {
+		ArrayList<String> pieces = new ArrayList<String>();
+		for (int index = 0; index < types.size(); index++) {
+			pieces.add(colors.get(index) + ":" + types.get(index));
+		}
+		Collections.sort(pieces);
+		return String.join(",", pieces);
+	}
+
+	public String getMaterial() {
+		ArrayList<String> materialtypes = new ArrayList<String>();
+		ArrayList<String> materialcolors = new ArrayList<String>();
+		for (int slot = 2; slot < types.length; slot++) {
+			materialtypes.add(types[slot]);
+			materialcolors.add(colors[slot]);
+		}
+		return getMaterial(materialtypes, materialcolors);
+	}
+
+	public static int win(int distance) {
+		return Math.min(distance, MAX_DISTANCE);
+	}
+
+	public static int loss(int distance) {
+		return -Math.min(distance, MAX_DISTANCE) - 1;
+	}
+
+	public static boolean isWin(int value) {
+		return value > 0;
+	}
+
+	public static boolean isLoss(int value) {
+		return value < 0;
+	}
+
+	// The distance of a won or lost position, in plies.
+	public static int getDistance(int value) {
+		return value > 0 ? value : -value - 1;
+	}
+
+	public int getValue(int index) {
+		return values[index];
+	}
+
+	public void setValue(int index, int value) {
+		values[index] = (byte) value;
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public String[] getTypes() {
+		return types;
+	}
+
+	public String[] getColors() {
+		return colors;
+	}
+
+	public int[][] getSquares() {
+		return squares;
+	}
+
+	public byte[] getValues() {
+		return values;
+	}
+}
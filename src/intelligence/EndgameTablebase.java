@@ -0,0 +1,241 @@
+package intelligence;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import compiler.interpreters.PieceSettingsCompiler;
+import engine.MoveGenerator;
+
+/**
+ * The endgame tablebase of a board holds the {@link EndgameTable} of the
+ * endings of a few pieces: {@link Chesster} plays the best move of the table
+ * instead of searching once the position is in one of them.
+ *
+ * The pieces are those of the {@link PieceSettingsCompiler} and the grounds
+ * those of the board, so the tables are generated for each board settings
+ * file (see the EndgameGenerator of test.io) and stored in a file next to it,
+ * compressed: for each table, its slots (type, color and squares) and the
+ * values of its positions.
+ *
+ * @see EndgameTable
+ * @see Chesster
+ * @author Dorian CHENET
+ *
+ */
+public class EndgameTablebase {
+
+	// The extension of the tablebases, which replaces the one of the board
+	// file.
+	public static final String TABLEBASE_EXTENSION = ".tb";
+
+	// The value of a position which is in no table.
+	public static final int UNKNOWN = Integer.MIN_VALUE;
+
+	// The tables by material.
+	private HashMap<String, EndgameTable> tables = new HashMap<String, EndgameTable>();
+
+	// The greatest number of pieces of the tables.
+	private int maxpieces = 0;
+
+	/**
+	 * @param boardfile
+	 *            a board settings file.
+	 * @return the path of the tablebase of the board.
+	 */
+	public static String getTablebasePath(String boardfile) {
+		int extension = boardfile.lastIndexOf('.');
+		if (extension > boardfile.lastIndexOf(File.separatorChar) && extension > boardfile.lastIndexOf('/')) {
+			return boardfile.substring(0, extension) + TABLEBASE_EXTENSION;
+		}
+		return boardfile + TABLEBASE_EXTENSION;
+	}
+
+	/**
+	 * Reading the tablebase of a board.
+	 *
+	 * @param boardfile
+	 *            the board settings file.
+	 * @return the tablebase, null if the board has none.
+	 */
+	public static EndgameTablebase open(String boardfile) {
+		File file = new File(getTablebasePath(boardfile));
+		if (!file.isFile()) {
+			return null;
+		}
+
+		EndgameTablebase tablebase = new EndgameTablebase();
+		try (DataInputStream input = new DataInputStream(
+				new GZIPInputStream(new BufferedInputStream(new FileInputStream(file))))) {
+			int count = input.readInt();
+			for (int table = 0; table < count; table++) {
+				int slots = input.readInt();
+				if (slots <= 0) {
+					throw new IOException(file + ": corrupt tablebase");
+				}
+				String[] types = new String[slots];
+				String[] colors = new String[slots];
+				int[][] squares = new int[slots][];
+
+				for (int slot = 0; slot < slots; slot++) {
+					types[slot] = input.readUTF();
+					colors[slot] = input.readUTF();
+					int length = input.readInt();
+					if (length <= 0 || length > BoardParameters.BOARD_SQUARES) {
+						throw new IOException(file + ": corrupt tablebase");
+					}
+					squares[slot] = new int[length];
+					for (int rank = 0; rank < length; rank++) {
+						squares[slot][rank] = input.readUnsignedByte();
+						if (squares[slot][rank] >= BoardParameters.BOARD_SQUARES) {
+							throw new IOException(file + ": corrupt tablebase");
+						}
+					}
+				}
+
+				EndgameTable endgametable = new EndgameTable(types, colors, squares);
+				input.readFully(endgametable.getValues());
+				tablebase.addTable(endgametable);
+			}
+		} catch (IOException e) {
+			// A truncated file gives an exception without a message.
+			System.err.println(e.getMessage() != null ? e.getMessage() : file + ": " + e);
+			return null;
+		}
+		return tablebase;
+	}
+
+	/**
+	 * Writing the tablebase.
+	 *
+	 * @param path
+	 *            the file of the tablebase.
+	 */
+	public void write(String path) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(
+				new GZIPOutputStream(new BufferedOutputStream(new FileOutputStream(path))))) {
+			output.writeInt(tables.size());
+			for (EndgameTable table : tables.values()) {
+				output.writeInt(table.getTypes().length);
+				for (int slot = 0; slot < table.getTypes().length; slot++) {
+					output.writeUTF(table.getTypes()[slot]);
+					output.writeUTF(table.getColors()[slot]);
+					output.writeInt(table.getSquares()[slot].length);
+					for (int square : table.getSquares()[slot]) {
+						output.writeByte(square);
+					}
+				}
+				output.write(table.getValues());
+			}
+		}
+	}
+
+	public void addTable(EndgameTable table) {
+		tables.put(table.getMaterial(), table);
+		maxpieces = Math.max(maxpieces, table.getTypes().length);
+	}
+
+	public EndgameTable getTable(String material) {
+		return tables.get(material);
+	}
+
+	/**
+	 * @param board
+	 * @return the table of the material of the board, null if there is none.
+	 */
+	public EndgameTable getTable(Board board) {
+		long[] occupancy = board.getOccupancy();
+		int pieces = 0;
+		for (long word : occupancy) {
+			pieces += Long.bitCount(word);
+		}
+		if (pieces > maxpieces) {
+			return null;
+		}
+
+		ArrayList<String> types = new ArrayList<String>();
+		ArrayList<String> colors = new ArrayList<String>();
+		for (Piece piece : board.getPieces()) {
+			if (!piece.getWincondition()) {
+				types.add(piece.getType());
+				colors.add(piece.getColor());
+			}
+		}
+		return tables.get(EndgameTable.getMaterial(types, colors));
+	}
+
+	/**
+	 * @param board
+	 * @return the value of the position for the player to move (see
+	 *         {@link EndgameTable}), UNKNOWN if it is in no table.
+	 */
+	public int probe(Board board) {
+		EndgameTable table = getTable(board);
+		if (table == null) {
+			return UNKNOWN;
+		}
+		int index = table.getIndex(board);
+		if (index == -1) {
+			return UNKNOWN;
+		}
+		return table.getValue(index);
+	}
+
+	/**
+	 * Choosing the move of the tables: the fastest win, else a draw, else the
+	 * slowest loss.
+	 *
+	 * @param board
+	 *            the position, the moves are made and taken back on it.
+	 * @param moves
+	 *            the legal moves of the position.
+	 * @param count
+	 *            the number of moves.
+	 * @return the best move, 0 if a position after a move is in no table.
+	 */
+	public int selectMove(Board board, int[] moves, int count) {
+		if (probe(board) == UNKNOWN) {
+			return 0;
+		}
+
+		int best = 0;
+		int bestscore = Integer.MIN_VALUE;
+		boolean known = true;
+		for (int index = 0; index < count && known; index++) {
+			board.makeMove(MoveGenerator.from(moves[index]), MoveGenerator.to(moves[index]));
+			int value = probe(board);
+			board.unmakeMove();
+
+			if (value == UNKNOWN) {
+				best = 0;
+				known = false;
+			} else {
+				// The value of the position after the move is the one of the
+				// opponent.
+				int score = 0;
+				if (EndgameTable.isLoss(value)) {
+					score = 1000 - EndgameTable.getDistance(value);
+				} else if (EndgameTable.isWin(value)) {
+					score = -1000 + EndgameTable.getDistance(value);
+				}
+				if (score > bestscore) {
+					best = moves[index];
+					bestscore = score;
+				}
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,262 @@
+package intelligence;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import board.components.PieceModel;
+import engine.MoveGenerator;
+import engine.TranspositionTable;
+
+/**
+ * The move picker gives the moves of a node of the {@link SearchWorker} one by
+ * one, in stages:
+ *
+ * - the move of the {@link TranspositionTable}, without scoring any move.
+ *
+ * - the captures, the most valuable victim first and, for a same victim, the
+ * least valuable attacker first (MVV-LVA, the weights of the
+ * {@link PieceModel}).
+ *
+ * - the killer moves: the moves which were not captures and caused a cutoff at
+ * the same ply.
+ *
+ * - the other moves, by decreasing history score (the cutoffs they caused in
+ * the whole search), then the moves of the pieces of weight 1 first.
+ *
+ * The quiescence search only asks for the captures: the picker stops after
+ * them.
+ *
+ * A stage is only scored when the previous ones are exhausted, and the best
+ * move of a stage is selected at each call: when a move causes a cutoff, the
+ * remaining moves are neither scored nor sorted. The moves are reordered in
+ * the buffer of the ply, a picker is reused by all the nodes of its ply.
+ *
+ * @see SearchWorker
+ * @see MoveGenerator
+ * @author Dorian CHENET
+ *
+ */
+class MovePicker {
+
+	// The stages of the picker.
+	private static final int HASH_MOVE = 0;
+	private static final int CAPTURES = 1;
+	private static final int KILLERS = 2;
+	private static final int QUIETS = 3;
+	private static final int DONE = 4;
+
+	// The number of killer moves kept per ply.
+	static final int KILLERS_PER_PLY = 2;
+
+	// The history scores above this bound are halved.
+	private static final int HISTORY_LIMIT = 1 << 20;
+
+	private Board board = null;
+
+	// The moves of the node, the moves before current were given.
+	private int[] moves = null;
+	private int count = 0;
+	private int current = 0;
+
+	// The end of the moves of the stage, the scores of the moves of the stage.
+	private int stageend = 0;
+	private int[] scores = new int[64];
+
+	private int stage = DONE;
+	private int hashmove = 0;
+	private int[] killers = null;
+	private int killer = 0;
+	private int[] history = null;
+	private Boolean capturesonly = false;
+
+	/**
+	 * @param board
+	 *            the board of the search.
+	 * @param history
+	 *            the history scores of the search, indexed by
+	 *            historyIndex(move).
+	 */
+	MovePicker(Board board, int[] history) {
+		this.board = board;
+		this.history = history;
+	}
+
+	/**
+	 * Starting to pick the moves of a node.
+	 *
+	 * @param moves
+	 *            the legal moves of the node, they are reordered.
+	 * @param count
+	 *            the number of moves.
+	 * @param hashmove
+	 *            the move of the transposition table, 0 if there is none.
+	 * @param killers
+	 *            the killer moves of the ply, 0 for none.
+	 * @param capturesonly
+	 *            true if only the captures are given.
+	 */
+	void reset(int[] moves, int count, int hashmove, int[] killers, Boolean capturesonly) {
+		this.moves = moves;
+		this.count = count;
+		this.current = 0;
+		this.hashmove = hashmove;
+		this.killers = killers;
+		this.killer = 0;
+		this.capturesonly = capturesonly;
+		this.stage = HASH_MOVE;
+		if (scores.length < count) {
+			scores = new int[moves.length];
+		}
+	}
+
+	/**
+	 * @return the next move to search, 0 when all the moves were given.
+	 */
+	int next() {
+		int move = 0;
+
+		while (move == 0 && stage != DONE) {
+			if (stage == HASH_MOVE) {
+				if (hashmove != 0) {
+					move = take(hashmove);
+				}
+				if (move == 0) {
+					startCaptures();
+				}
+			}
+
+			else if (stage == CAPTURES) {
+				if (current < stageend) {
+					move = select();
+				} else if (capturesonly) {
+					stage = DONE;
+				} else {
+					stage = KILLERS;
+				}
+			}
+
+			else if (stage == KILLERS) {
+				if (killer < killers.length) {
+					if (killers[killer] != 0) {
+						move = take(killers[killer]);
+					}
+					killer++;
+				} else {
+					startQuiets();
+				}
+			}
+
+			else if (current < stageend) {
+				move = select();
+			} else {
+				stage = DONE;
+			}
+		}
+
+		return move;
+	}
+
+	/**
+	 * Keeping a move which caused a cutoff: the captures are already searched
+	 * first, only the other moves become killers and get a history bonus.
+	 *
+	 * @param move
+	 * @param killers
+	 *            the killer moves of the ply.
+	 * @param history
+	 * @param depth
+	 *            the remaining depth of the node.
+	 */
+	static void storeCutoff(int move, int[] killers, int[] history, int depth) {
+		if (!MoveGenerator.isCapture(move)) {
+			move = move & MoveGenerator.MOVE_MASK;
+			if (killers[0] != move) {
+				System.arraycopy(killers, 0, killers, 1, killers.length - 1);
+				killers[0] = move;
+			}
+
+			int index = historyIndex(move);
+			history[index] += depth * depth;
+			if (history[index] > HISTORY_LIMIT) {
+				for (int square = 0; square < history.length; square++) {
+					history[square] = history[square] / 2;
+				}
+			}
+		}
+	}
+
+	// The index of a move in the history scores.
+	static int historyIndex(int move) {
+		return MoveGenerator.from(move) * BoardParameters.BOARD_SQUARES + MoveGenerator.to(move);
+	}
+
+	// Giving the move with the given squares if it was not given yet, 0 if
+	// it is not among the remaining moves.
+	private int take(int wanted) {
+		for (int index = current; index < count; index++) {
+			if ((moves[index] & MoveGenerator.MOVE_MASK) == wanted) {
+				swap(index, current);
+				current++;
+				return moves[current - 1];
+			}
+		}
+		return 0;
+	}
+
+	// The captures are moved to the front of the remaining moves and scored.
+	private void startCaptures() {
+		stage = CAPTURES;
+		stageend = current;
+
+		for (int index = current; index < count; index++) {
+			if (MoveGenerator.isCapture(moves[index])) {
+				swap(index, stageend);
+				Piece attacker = board.getPiece(MoveGenerator.from(moves[stageend]));
+				scores[stageend] = MoveGenerator.captured(moves[stageend]) * 256 - attacker.getWeight();
+				stageend++;
+			}
+		}
+	}
+
+	// The remaining moves are scored by their history.
+	private void startQuiets() {
+		stage = QUIETS;
+		stageend = count;
+
+		for (int index = current; index < count; index++) {
+			Piece piece = board.getPiece(MoveGenerator.from(moves[index]));
+			scores[index] = history[historyIndex(moves[index])] * 2 + (piece.getWeight() == 1 ? 1 : 0);
+		}
+	}
+
+	// Giving the move of the greatest score of the stage, the first one among
+	// the moves of the same score.
+	private int select() {
+		int best = current;
+		for (int index = current + 1; index < stageend; index++) {
+			if (scores[index] > scores[best]) {
+				best = index;
+			}
+		}
+
+		// The moves between current and best keep their order.
+		int move = moves[best];
+		int score = scores[best];
+		System.arraycopy(moves, current, moves, current + 1, best - current);
+		System.arraycopy(scores, current, scores, current + 1, best - current);
+		moves[current] = move;
+		scores[current] = score;
+		current++;
+		return move;
+	}
+
+	private void swap(int first, int second) {
+		int move = moves[first];
+		moves[first] = moves[second];
+		moves[second] = move;
+
+		int score = scores[first];
+		scores[first] = scores[second];
+		scores[second] = score;
+	}
+}
@@ -0,0 +1,196 @@
+package intelligence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+import board.Board;
+import board.Zobrist;
+import engine.MoveGenerator;
+
+/**
+ * The opening book gives {@link Chesster} the moves to play in the first
+ * positions of a game without searching. Each board settings file has its own
+ * book, next to it (the grounds of the boards differ).
+ *
+ * A book is a binary file of records of RECORD_SIZE bytes: the {@link Zobrist}
+ * key of a position (a long), a move of the position (an int, the squares of
+ * the move as packed by {@link MoveGenerator}) and the weight of the move (an
+ * int). The records are sorted by key, the file is mapped in memory and the
+ * moves of a position are found by a binary search.
+ *
+ * A move of the book is drawn at random, with a probability proportional to
+ * its weight, among the moves of the position which are legal: a key shared
+ * by another position cannot give a wrong move.
+ *
+ * @see Chesster
+ * @see Zobrist
+ * @author Dorian CHENET
+ *
+ */
+public class OpeningBook {
+
+	// The size of a record: the key, the move and the weight.
+	public static final int RECORD_SIZE = 16;
+
+	// The extension of the books, which replaces the one of the board file.
+	public static final String BOOK_EXTENSION = ".book";
+
+	private MappedByteBuffer records = null;
+	private int size = 0;
+
+	private Random random = new Random();
+
+	private OpeningBook(MappedByteBuffer records) {
+		this.records = records;
+		this.size = records.capacity() / RECORD_SIZE;
+	}
+
+	/**
+	 * @param boardfile
+	 *            a board settings file.
+	 * @return the path of the book of the board.
+	 */
+	public static String getBookPath(String boardfile) {
+		int extension = boardfile.lastIndexOf('.');
+		if (extension > boardfile.lastIndexOf(File.separatorChar) && extension > boardfile.lastIndexOf('/')) {
+			return boardfile.substring(0, extension) + BOOK_EXTENSION;
+		}
+		return boardfile + BOOK_EXTENSION;
+	}
+
+	/**
+	 * Mapping the book of a board in memory.
+	 *
+	 * @param boardfile
+	 *            the board settings file.
+	 * @return the book, null if the board has no book.
+	 */
+	public static OpeningBook open(String boardfile) {
+		File book = new File(getBookPath(boardfile));
+		if (!book.isFile()) {
+			return null;
+		}
+
+		try (FileChannel channel = FileChannel.open(book.toPath(), StandardOpenOption.READ)) {
+			long length = channel.size() - channel.size() % RECORD_SIZE;
+			return new OpeningBook(channel.map(MapMode.READ_ONLY, 0, length));
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Writing a book.
+	 *
+	 * @param path
+	 *            the file of the book.
+	 * @param keys
+	 *            the keys of the records, in increasing order (as signed
+	 *            longs).
+	 * @param moves
+	 *            the moves of the records.
+	 * @param weights
+	 *            the weights of the records.
+	 * @param count
+	 *            the number of records.
+	 */
+	public static void write(String path, long[] keys, int[] moves, int[] weights, int count) throws IOException {
+		try (DataOutputStream output = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(Paths.get(path).toFile())))) {
+			for (int index = 0; index < count; index++) {
+				output.writeLong(keys[index]);
+				output.writeInt(moves[index] & MoveGenerator.MOVE_MASK);
+				output.writeInt(weights[index]);
+			}
+		}
+	}
+
+	/**
+	 * @param board
+	 *            the position.
+	 * @param moves
+	 *            the legal moves of the position.
+	 * @param count
+	 *            the number of moves.
+	 * @return a move of the book for the position, taken from the given moves,
+	 *         0 if the book has no legal move for the position.
+	 */
+	public int probe(Board board, int[] moves, int count) {
+		long key = board.getKey();
+		int first = findFirst(key);
+
+		int total = 0;
+		for (int index = first; index < size && getKey(index) == key; index++) {
+			if (find(getMove(index), moves, count) != 0) {
+				total += getWeight(index);
+			}
+		}
+
+		int move = 0;
+		if (total > 0) {
+			int chosen = random.nextInt(total);
+			for (int index = first; index < size && getKey(index) == key && move == 0; index++) {
+				int legal = find(getMove(index), moves, count);
+				if (legal != 0) {
+					chosen -= getWeight(index);
+					if (chosen < 0) {
+						move = legal;
+					}
+				}
+			}
+		}
+		return move;
+	}
+
+	// The number of records of the book.
+	public int getSize() {
+		return size;
+	}
+
+	// The index of the first record of the key, or of the first greater key.
+	private int findFirst(long key) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (getKey(middle) < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	// The move of the list with the squares of the book move, 0 if none.
+	private static int find(int bookmove, int[] moves, int count) {
+		for (int index = 0; index < count; index++) {
+			if ((moves[index] & MoveGenerator.MOVE_MASK) == bookmove) {
+				return moves[index];
+			}
+		}
+		return 0;
+	}
+
+	private long getKey(int index) {
+		return records.getLong(index * RECORD_SIZE);
+	}
+
+	private int getMove(int index) {
+		return records.getInt(index * RECORD_SIZE + 8);
+	}
+
+	private int getWeight(int index) {
+		return records.getInt(index * RECORD_SIZE + 12);
+	}
+}
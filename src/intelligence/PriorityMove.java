@@ -1,75 +1,75 @@
 package intelligence;
 
+import board.Board;
+import engine.MoveGenerator;
 import strategy.data.Coordinates;
 
 /**
  * PirorityMove objects are used by XiangQi's AI {@link Chesster}. A
  * PriorityMove associated a move (piece to move and where to put the piece) to
  * a priority weight (priority).
- * 
+ *
+ * The move and its priority are packed in an int (see {@link MoveGenerator}),
+ * Chesster orders its moves as packed ints and only creates a PriorityMove for
+ * the move it plays.
+ *
  * @see Chesster
+ * @see MoveGenerator
  * @author Dorian CHENET
  *
  */
 public class PriorityMove {
 
 	/*
-	 * The coordonates of the piece to move.
-	 */
-	private Coordinates initial = null;
-	
-	/*
-	 * The position where the AI must put the piece.
+	 * The packed move: the square of the piece to move, the square where the
+	 * AI must put the piece and the priority of the move.
 	 */
-	private Coordinates finalposition = null;
-	
-	/*
-	 * The priority of the move.
-	 */
-	private int priority = 0;
+	private int move = 0;
 
 	public PriorityMove() {
 		// TODO Auto-generated constructor stub
 	}
 
+	public PriorityMove(int move) {
+		super();
+		this.move = move;
+	}
+
 	public PriorityMove(Coordinates initial, Coordinates finalposition, int priority) {
 		super();
-		this.initial = initial;
-		this.finalposition = finalposition;
-		this.priority = priority;
+		this.move = MoveGenerator.withScore(MoveGenerator.encode(Board.square(initial.getX(), initial.getY()),
+				Board.square(finalposition.getX(), finalposition.getY())), priority);
 	}
 
-	public Coordinates getInitial() {
-		return initial;
+	public int getMove() {
+		return move;
 	}
 
-	public void setInitial(Coordinates initial) {
-		this.initial = initial;
+	public void setMove(int move) {
+		this.move = move;
 	}
 
-	public Coordinates getFinalposition() {
-		return finalposition;
+	public Coordinates getInitial() {
+		return new Coordinates(Board.squareX(MoveGenerator.from(move)), Board.squareY(MoveGenerator.from(move)));
 	}
 
-	public void setFinalposition(Coordinates finalposition) {
-		this.finalposition = finalposition;
+	public Coordinates getFinalposition() {
+		return new Coordinates(Board.squareX(MoveGenerator.to(move)), Board.squareY(MoveGenerator.to(move)));
 	}
 
 	public int getPriority() {
-		return priority;
+		return MoveGenerator.score(move);
 	}
 
 	public void setPriority(int priority) {
-		this.priority = priority;
+		this.move = MoveGenerator.withScore(move, priority);
 	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
-		result = prime * result + ((finalposition == null) ? 0 : finalposition.hashCode());
-		result = prime * result + ((initial == null) ? 0 : initial.hashCode());
-		result = prime * result + priority;
+		result = prime * result + move;
 		return result;
 	}
 
@@ -82,24 +82,15 @@ public class PriorityMove {
 		if (getClass() != obj.getClass())
 			return false;
 		PriorityMove other = (PriorityMove) obj;
-		if (finalposition == null) {
-			if (other.finalposition != null)
-				return false;
-		} else if (!finalposition.equals(other.finalposition))
-			return false;
-		if (initial == null) {
-			if (other.initial != null)
-				return false;
-		} else if (!initial.equals(other.initial))
-			return false;
-		if (priority != other.priority)
+		if (move != other.move)
 			return false;
 		return true;
 	}
 
 	@Override
 	public String toString() {
-		return "PriorityMove [initial=" + initial + ", finalposition=" + finalposition + ", priority=" + priority + "]";
+		return "PriorityMove [initial=" + getInitial() + ", finalposition=" + getFinalposition() + ", priority="
+				+ getPriority() + "]";
 	}
 
 }
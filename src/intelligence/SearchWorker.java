@@ -0,0 +1,354 @@
+package intelligence;
+
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+
+import board.Board;
+import board.BoardParameters;
+import board.Evaluation;
+import engine.MoveGenerator;
+import engine.TranspositionTable;
+
+/**
+ * A search worker runs the iterative deepening of the {@link AlphaBetaSearch}
+ * on the moves of the root. Each worker owns its copy of the board, its
+ * {@link MoveGenerator} (and thus its validator) so that several
+ * workers can search at the same time: they only share the
+ * {@link TranspositionTable}, which does not need locks.
+ *
+ * When several workers search the same position (lazy SMP), the workers of
+ * odd index start one ply deeper so that they fill the table ahead of the
+ * others.
+ *
+ * The moves of a node are given by the {@link MovePicker} of its ply; the
+ * killer moves and the history scores it uses are kept by the worker for the
+ * whole search.
+ *
+ * The leaves are not evaluated as they are: a quiescence search goes on with
+ * the captures (and all the moves of a player in check) until the position is
+ * quiet. A player who is not in check may stop taking (stand pat), a capture
+ * which cannot raise the evaluation above alpha, even with a margin, is not
+ * searched (delta pruning), and each quiescence search is bounded by a number
+ * of nodes.
+ *
+ * @see AlphaBetaSearch
+ * @see MovePicker
+ * @see TranspositionTable
+ * @author Dorian CHENET
+ *
+ */
+public class SearchWorker implements Callable<SearchWorker> {
+
+	// The points a capture must be able to win above alpha, in addition to the
+	// taken piece, to be searched by the quiescence search.
+	private static final int DELTA_MARGIN = 2 * Evaluation.WEIGHT_UNIT;
+
+	// The private copy of the board and its move generator.
+	private Board board = null;
+	private MoveGenerator generator = null;
+
+	private TranspositionTable table = null;
+
+	// The move pickers and the killer moves of each ply, the history scores
+	// of the moves (see MovePicker.historyIndex).
+	private MovePicker[] pickers = new MovePicker[0];
+	private int[][] killers = new int[0][];
+	private int[] history = new int[BoardParameters.BOARD_SQUARES * BoardParameters.BOARD_SQUARES];
+
+	// The moves of the root and the order they are searched in.
+	private int[] moves;
+	private int[] order;
+	private String color;
+
+	private int firstdepth;
+	private int maxdepth;
+
+	// Search state
+	private long deadline = 0;
+	private Boolean timeout = false;
+	private long nodes = 0;
+
+	// The number of nodes of a quiescence search, and the number of nodes
+	// left to the current one.
+	private int quiescencenodes = AlphaBetaSearch.DEFAULT_QUIESCENCE_NODES;
+	private int quiescenceleft = 0;
+
+	// Results: the index of the best root move and the depth of the last
+	// complete iteration.
+	private int best = 0;
+	private int completeddepth = 0;
+
+	/**
+	 * @param playingboard
+	 *            the board to search from, it is copied.
+	 * @param color
+	 *            the color of the player to move.
+	 * @param moves
+	 *            the moves of the root, sorted by decreasing priority.
+	 * @param table
+	 *            the transposition table of the search.
+	 * @param firstdepth
+	 *            the depth of the first iteration.
+	 * @param maxdepth
+	 * @param deadline
+	 *            the time (System.nanoTime()) when the search must stop.
+	 */
+	public SearchWorker(Board playingboard, String color, int[] moves, TranspositionTable table, int firstdepth,
+			int maxdepth, long deadline) {
+		this.board = new Board(playingboard);
+		this.board.setSideToMove(color);
+		this.generator = new MoveGenerator(board);
+		this.color = color;
+		this.moves = moves;
+		this.table = table;
+		this.firstdepth = firstdepth;
+		this.maxdepth = maxdepth;
+		this.deadline = deadline;
+
+		this.order = new int[moves.length];
+		for (int index = 0; index < order.length; index++) {
+			order[index] = index;
+		}
+	}
+
+	// Runs the iterative deepening until the deadline or the maximum depth.
+	public SearchWorker call() {
+		String opponent = MoveGenerator.opponentColor(color);
+
+		for (int depth = firstdepth; depth <= maxdepth && !timeout; depth++) {
+			int alpha = -AlphaBetaSearch.INFINITY;
+			int iterationbest = -1;
+
+			for (int index = 0; index < order.length && !timeout; index++) {
+				int move = moves[order[index]];
+				board.makeMove(MoveGenerator.from(move), MoveGenerator.to(move));
+				int score = -negamax(depth - 1, -AlphaBetaSearch.INFINITY, -alpha, opponent, 1);
+				board.unmakeMove();
+
+				if (!timeout && score > alpha) {
+					alpha = score;
+					iterationbest = index;
+				}
+			}
+
+			// The results of an unfinished iteration are not used.
+			if (!timeout && iterationbest != -1) {
+				best = order[iterationbest];
+				completeddepth = depth;
+
+				// The best move is searched first in the next iteration.
+				System.arraycopy(order, 0, order, 1, iterationbest);
+				order[0] = best;
+
+				// No need to search deeper once a mate is found.
+				if (alpha >= AlphaBetaSearch.MATE - depth || alpha <= -AlphaBetaSearch.MATE + depth) {
+					break;
+				}
+			}
+		}
+
+		return this;
+	}
+
+	// Negamax with alpha-beta pruning, the score is from the point of view of
+	// the player to move (color).
+	private int negamax(int depth, int alpha, int beta, String color, int ply) {
+		// The clock is read every 16 nodes, the generation of the moves of a
+		// node is much more expensive than reading it.
+		nodes++;
+		if ((nodes & 15) == 0 && System.nanoTime() > deadline) {
+			timeout = true;
+		}
+		if (timeout) {
+			return 0;
+		}
+
+		if (depth == 0) {
+			quiescenceleft = quiescencenodes;
+			return quiesce(alpha, beta, color, ply);
+		}
+
+		// Looking the position up in the transposition table.
+		long key = board.getKey();
+		long entry = table.probe(key);
+		int hashmove = 0;
+		if (entry != TranspositionTable.MISS) {
+			hashmove = TranspositionTable.getMove(entry);
+			if (TranspositionTable.getDepth(entry) >= depth) {
+				int score = fromTable(TranspositionTable.getScore(entry), ply);
+				int type = TranspositionTable.getType(entry);
+				if (type == TranspositionTable.EXACT || (type == TranspositionTable.LOWER_BOUND && score >= beta)
+						|| (type == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+					return score;
+				}
+			}
+		}
+
+		// The moves are generated in the buffer of the ply, the deeper plies
+		// use other buffers.
+		int count = generator.generateLegalMoves(color, ply);
+		int[] moves = generator.getMoves(ply);
+
+		// A player who cannot move has lost, the sooner the better.
+		if (count == 0) {
+			return -AlphaBetaSearch.MATE + ply;
+		}
+
+		MovePicker picker = getPicker(ply);
+		picker.reset(moves, count, hashmove, killers[ply], false);
+		String opponent = MoveGenerator.opponentColor(color);
+		int originalalpha = alpha;
+		int bestmove = 0;
+
+		int move = picker.next();
+		while (move != 0) {
+			board.makeMove(MoveGenerator.from(move), MoveGenerator.to(move));
+			int score = -negamax(depth - 1, -beta, -alpha, opponent, ply + 1);
+			board.unmakeMove();
+
+			if (timeout) {
+				return 0;
+			}
+			if (score >= beta) {
+				MovePicker.storeCutoff(move, killers[ply], history, depth);
+				table.store(key, toTable(beta, ply), move & MoveGenerator.MOVE_MASK, depth,
+						TranspositionTable.LOWER_BOUND);
+				return beta;
+			}
+			if (score > alpha) {
+				alpha = score;
+				bestmove = move & MoveGenerator.MOVE_MASK;
+			}
+			move = picker.next();
+		}
+
+		table.store(key, toTable(alpha, ply), bestmove, depth,
+				alpha > originalalpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND);
+		return alpha;
+	}
+
+	// The quiescence search, the score is from the point of view of the player
+	// to move (color).
+	private int quiesce(int alpha, int beta, String color, int ply) {
+		nodes++;
+		if ((nodes & 15) == 0 && System.nanoTime() > deadline) {
+			timeout = true;
+		}
+		if (timeout) {
+			return 0;
+		}
+
+		quiescenceleft--;
+		if (quiescenceleft < 0) {
+			return evaluate(color);
+		}
+
+		int count = generator.generateLegalMoves(color, ply);
+		int[] moves = generator.getMoves(ply);
+		Boolean checked = generator.getChecked();
+
+		// A player who cannot move has lost, the sooner the better.
+		if (count == 0) {
+			return -AlphaBetaSearch.MATE + ply;
+		}
+
+		// A player in check must answer it, the other one may stop taking.
+		int standpat = evaluate(color);
+		if (!checked) {
+			if (standpat >= beta) {
+				return beta;
+			}
+			if (standpat > alpha) {
+				alpha = standpat;
+			}
+		}
+
+		MovePicker picker = getPicker(ply);
+		picker.reset(moves, count, 0, killers[ply], !checked);
+		String opponent = MoveGenerator.opponentColor(color);
+
+		int move = picker.next();
+		while (move != 0) {
+			// Delta pruning: the capture cannot raise the evaluation to alpha.
+			if (checked
+					|| standpat + MoveGenerator.captured(move) * Evaluation.WEIGHT_UNIT + DELTA_MARGIN > alpha) {
+				board.makeMove(MoveGenerator.from(move), MoveGenerator.to(move));
+				int score = -quiesce(-beta, -alpha, opponent, ply + 1);
+				board.unmakeMove();
+
+				if (timeout) {
+					return 0;
+				}
+				if (score >= beta) {
+					return beta;
+				}
+				if (score > alpha) {
+					alpha = score;
+				}
+			}
+			move = picker.next();
+		}
+
+		return alpha;
+	}
+
+	// The mate scores are stored relative to the position, not to the root.
+	private int toTable(int score, int ply) {
+		if (score > AlphaBetaSearch.MATE_BOUND) {
+			return score + ply;
+		} else if (score < -AlphaBetaSearch.MATE_BOUND) {
+			return score - ply;
+		}
+		return score;
+	}
+
+	private int fromTable(int score, int ply) {
+		if (score > AlphaBetaSearch.MATE_BOUND) {
+			return score - ply;
+		} else if (score < -AlphaBetaSearch.MATE_BOUND) {
+			return score + ply;
+		}
+		return score;
+	}
+
+	// The move picker of a ply and its killer moves, created when the ply is
+	// first reached.
+	private MovePicker getPicker(int ply) {
+		if (ply >= pickers.length) {
+			int length = pickers.length;
+			pickers = Arrays.copyOf(pickers, ply + 1);
+			killers = Arrays.copyOf(killers, ply + 1);
+			for (int index = length; index <= ply; index++) {
+				pickers[index] = new MovePicker(board, history);
+				killers[index] = new int[MovePicker.KILLERS_PER_PLY];
+			}
+		}
+		return pickers[ply];
+	}
+
+	// The evaluation of the position from the point of view of the given
+	// color, it is kept up to date by the board on every move.
+	private int evaluate(String color) {
+		return board.getScore(color);
+	}
+
+	public int getBest() {
+		return best;
+	}
+
+	public int getCompleteddepth() {
+		return completeddepth;
+	}
+
+	public long getNodes() {
+		return nodes;
+	}
+
+	public int getQuiescencenodes() {
+		return quiescencenodes;
+	}
+
+	public void setQuiescencenodes(int quiescencenodes) {
+		this.quiescencenodes = quiescencenodes;
+	}
+}
@@ -20,6 +20,9 @@ public class GroundsRepository {
 
 	private HashMap<String, Ground> grounds = new HashMap<String, Ground>();
 
+	// The ids of the ground types, given in the order the names are met.
+	private HashMap<String, Integer> groundids = new HashMap<String, Integer>();
+
 	private static GroundsRepository instance = new GroundsRepository();
 
 	private GroundsRepository() {
@@ -43,6 +46,20 @@ public class GroundsRepository {
 		grounds.put(ground.getName(), ground);
 	}
 
+	/**
+	 * @param name
+	 *            the name of a ground type.
+	 * @return the id of the ground type, the ids are dense and start at 0.
+	 */
+	public synchronized int getGroundId(String name) {
+		Integer id = groundids.get(name);
+		if (id == null) {
+			id = groundids.size();
+			groundids.put(name, id);
+		}
+		return id;
+	}
+
 	public boolean exists(String name) {
 		return grounds.get(name) == null;
 	}
@@ -22,6 +22,9 @@ public class PiecesRepository {
 
 	private HashMap<String, PieceModel> pieces = new HashMap<String, PieceModel>();
 
+	// The ids of the piece types, given in the order the names are met.
+	private HashMap<String, Integer> typeids = new HashMap<String, Integer>();
+
 	private static PiecesRepository instance = new PiecesRepository();
 
 	private PiecesRepository() {
@@ -40,10 +43,26 @@ public class PiecesRepository {
 		return pieces.get(name);
 	}
 
+	// The model is compiled before it is used by the pieces.
 	public void register(PieceModel piece) {
+		piece.compile();
 		pieces.put(piece.getType(), piece);
 	}
 
+	/**
+	 * @param name
+	 *            the name of a piece type, registered or not yet.
+	 * @return the id of the piece type, the ids are dense and start at 0.
+	 */
+	public synchronized int getTypeId(String name) {
+		Integer id = typeids.get(name);
+		if (id == null) {
+			id = typeids.size();
+			typeids.put(name, id);
+		}
+		return id;
+	}
+
 	public boolean exists(String name) {
 		return !(pieces.get(name) == null);
 	}
@@ -0,0 +1,76 @@
+package rules;
+
+import board.Board;
+import board.components.Piece;
+import compiler.lang.ValidityGrammar;
+import repositories.PiecesRepository;
+import strategy.data.MoveTable;
+
+/**
+ * The compiled {@link PieceTypeAlignmentRule}: the piece types the piece must
+ * not meet are a bit mask of their ids (see {@link PiecesRepository}) and the
+ * paths looked at are arrays of increments.
+ * 
+ * As with the rule, the search stops at the first piece or at the first edge
+ * of the board met by a path of the color of the piece.
+ * 
+ * @see PieceTypeAlignmentRule
+ * @see RulePredicate
+ * @author Dorian CHENET
+ *
+ */
+public final class AlignmentPredicate implements RulePredicate {
+
+	// One bit per piece type id, 64 ids per word.
+	private final long[] typemask;
+
+	// The color id of a path which applies to all the colors.
+	public static final int ALL_COLORS = -2;
+
+	// For each path: the id of the color it applies to (ALL_COLORS for all
+	// the colors) and its increments.
+	private final int[] colorids;
+	private final int[][] xincrements;
+	private final int[][] yincrements;
+
+	public AlignmentPredicate(long[] typemask, int[] colorids, int[][] xincrements, int[][] yincrements) {
+		this.typemask = typemask;
+		this.colorids = colorids;
+		this.xincrements = xincrements;
+		this.yincrements = yincrements;
+	}
+
+	@Override
+	public int evaluate(int square, int[] path, Piece piece, Board board) {
+		boolean stopcondition = false;
+		int validity = ValidityGrammar.CAN_EAT;
+
+		for (int index = 0; index < colorids.length && !stopcondition; index++) {
+			if (colorids[index] == ALL_COLORS || colorids[index] == piece.getColorid()) {
+				int x = Board.squareX(square);
+				int y = Board.squareY(square);
+
+				for (int step = 0; step < xincrements[index].length && !stopcondition; step++) {
+					x += xincrements[index][step];
+					y += yincrements[index][step];
+					int encounteredsquare = Board.square(x, y);
+
+					if (encounteredsquare == MoveTable.OFF_BOARD) {
+						stopcondition = true;
+					} else if (board.getPiece(encounteredsquare) != null) {
+						Piece encountered = board.getPiece(encounteredsquare);
+						int id = encountered.getTypeid();
+						if (id >= 0 && (id >> 6) < typemask.length && (typemask[id >> 6] & (1L << id)) != 0
+								&& encountered.getColorid() != piece.getColorid()) {
+							// A forbidden piece type is met.
+							validity = ValidityGrammar.NOT_VALID;
+						}
+						stopcondition = true;
+					}
+				}
+			}
+		}
+		return validity;
+	}
+
+}
@@ -0,0 +1,33 @@
+package rules;
+
+import board.Board;
+import board.components.Piece;
+import compiler.lang.Grammar;
+import compiler.lang.ValidityGrammar;
+
+/**
+ * The predicate of a rule which gives the same validity for every move: the
+ * rules naming the macros of the {@link Grammar} (ALL, NONE).
+ * 
+ * @see RulePredicate
+ * @author Dorian CHENET
+ *
+ */
+public final class ConstantPredicate implements RulePredicate {
+
+	public static final ConstantPredicate VALID = new ConstantPredicate(ValidityGrammar.CAN_EAT);
+
+	public static final ConstantPredicate NOT_VALID = new ConstantPredicate(ValidityGrammar.NOT_VALID);
+
+	private final int validity;
+
+	private ConstantPredicate(int validity) {
+		this.validity = validity;
+	}
+
+	@Override
+	public int evaluate(int square, int[] path, Piece piece, Board board) {
+		return validity;
+	}
+
+}
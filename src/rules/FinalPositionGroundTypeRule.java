@@ -6,6 +6,7 @@ import compiler.lang.Grammar;
 import compiler.lang.RuleGrammar;
 import engine.visitor.Evaluator;
 import engine.visitor.RuleEvaluator;
+import repositories.GroundsRepository;
 
 /**
  * This rule, child of the class {@link Rule} tells us if a piece move is valid
@@ -43,6 +44,24 @@ public class FinalPositionGroundTypeRule extends Rule {
 
 	public void setGroundtypes(ArrayList<String> groundtypes) {
 		this.groundtypes = groundtypes;
+		invalidate();
+	}
+
+	@Override
+	protected RulePredicate compile() {
+		if (groundtypes.contains(Grammar.MACRO_ALL)) {
+			return ConstantPredicate.VALID;
+		}
+
+		else if (groundtypes.contains(Grammar.MACRO_NONE)) {
+			return ConstantPredicate.NOT_VALID;
+		}
+
+		int[] ids = new int[groundtypes.size()];
+		for (int index = 0; index < ids.length; index++) {
+			ids[index] = GroundsRepository.getInstance().getGroundId(groundtypes.get(index));
+		}
+		return new GroundTypePredicate(createMask(ids));
 	}
 
 	public <R> R evaluate(Evaluator<R> evaluator) {
@@ -0,0 +1,39 @@
+package rules;
+
+import board.Board;
+import board.components.Piece;
+import compiler.lang.ValidityGrammar;
+import repositories.GroundsRepository;
+
+/**
+ * The compiled {@link FinalPositionGroundTypeRule}: the ground types the piece
+ * may end its move on are a bit mask of their ids (see
+ * {@link GroundsRepository}).
+ * 
+ * @see FinalPositionGroundTypeRule
+ * @see RulePredicate
+ * @author Dorian CHENET
+ *
+ */
+public final class GroundTypePredicate implements RulePredicate {
+
+	// One bit per ground type id, 64 ids per word.
+	private final long[] groundmask;
+
+	public GroundTypePredicate(long[] groundmask) {
+		this.groundmask = groundmask;
+	}
+
+	@Override
+	public int evaluate(int square, int[] path, Piece piece, Board board) {
+		// The compiled paths always end on the board.
+		int position = path[path.length - 1];
+		int id = board.getGround(Board.squareX(position), Board.squareY(position)).getId();
+
+		if ((id >> 6) < groundmask.length && (groundmask[id >> 6] & (1L << id)) != 0) {
+			return ValidityGrammar.CAN_EAT;
+		}
+		return ValidityGrammar.NOT_VALID;
+	}
+
+}
@@ -0,0 +1,97 @@
+package rules;
+
+import board.Board;
+import board.components.Piece;
+import compiler.lang.ValidityGrammar;
+import strategy.data.MoveTable;
+
+/**
+ * The compiled {@link JumpRule}: the number of pieces the piece jumps over
+ * along the path of the move gives the validity of the move.
+ * 
+ * @see JumpRule
+ * @see RulePredicate
+ * @author Dorian CHENET
+ *
+ */
+public final class JumpPredicate implements RulePredicate {
+
+	private final int jumpcount;
+
+	// True if the piece only eats after its last jump.
+	private final boolean eooloption;
+
+	public JumpPredicate(int jumpcount, boolean eooloption) {
+		this.jumpcount = jumpcount;
+		this.eooloption = eooloption;
+	}
+
+	@Override
+	public int evaluate(int square, int[] path, Piece piece, Board board) {
+		int piececount = 0;
+		Piece last = null;
+
+		// The pieces met along the path, the last square of the path is the
+		// final position of the move.
+		for (int index = 0; index < path.length; index++) {
+			if (path[index] != MoveTable.OFF_BOARD) {
+				last = board.getPiece(path[index]);
+			} else {
+				last = null;
+			}
+
+			if (last != null && last != piece) {
+				piececount++;
+			}
+		}
+
+		if (eooloption) {
+			return evaluateLastJump(last, piececount, piece);
+		}
+
+		int validity = 0;
+		if (last == null && piececount == jumpcount) {
+			validity = ValidityGrammar.CAN_EAT;
+		}
+
+		if (last != null && piececount <= jumpcount + 1) {
+			if (last.getColorid() != piece.getColorid()) {
+				validity = ValidityGrammar.CAN_EAT;
+			} else {
+				validity = ValidityGrammar.IS_ONLY_COVERED;
+			}
+		}
+		return validity;
+	}
+
+	// The validity of a move of a piece which only eats after its last jump.
+	private int evaluateLastJump(Piece last, int piececount, Piece piece) {
+		int validity = 0;
+
+		if (last == null) {
+			if (piececount < jumpcount) {
+				validity = ValidityGrammar.DEPLACEMENT_ONLY;
+			} else if (piececount == jumpcount) {
+				validity = ValidityGrammar.IS_ONLY_COVERED;
+			} else {
+				validity = ValidityGrammar.NOT_VALID;
+			}
+		}
+
+		else if (piececount <= jumpcount) {
+			validity = ValidityGrammar.NOT_VALID;
+		}
+
+		else if (piececount == jumpcount + 1) {
+			if (last.getColorid() == piece.getColorid()) {
+				validity = ValidityGrammar.IS_ONLY_COVERED;
+			} else if (last.getWincondition()) {
+				validity = ValidityGrammar.CHECK;
+			} else {
+				validity = ValidityGrammar.CAN_EAT;
+			}
+		}
+		return validity;
+	}
+
+}
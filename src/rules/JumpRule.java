@@ -49,6 +49,7 @@ public class JumpRule extends Rule {
 
 	public void setJumpcount(int jumpcount) {
 		this.jumpcount = jumpcount;
+		invalidate();
 	}
 
 	public Boolean getEooloption() {
@@ -57,6 +58,12 @@ public class JumpRule extends Rule {
 
 	public void setEooloption(Boolean eooloption) {
 		this.eooloption = eooloption;
+		invalidate();
+	}
+
+	@Override
+	protected RulePredicate compile() {
+		return new JumpPredicate(jumpcount, eooloption != null && eooloption);
 	}
 
 	public <R> R evaluate(Evaluator<R> evaluator) {
@@ -2,9 +2,11 @@ package rules;
 
 import java.util.ArrayList;
 
+import compiler.lang.Grammar;
 import compiler.lang.RuleGrammar;
 import engine.visitor.Evaluator;
 import engine.visitor.RuleEvaluator;
+import repositories.PiecesRepository;
 import strategy.data.TaggedPath;
 
 /**
@@ -57,6 +59,7 @@ public class PieceTypeAlignmentRule extends Rule {
 
 	public void setPiecetypes(ArrayList<String> piecetypes) {
 		this.piecetypes = piecetypes;
+		invalidate();
 	}
 
 	public ArrayList<TaggedPath> getPaths() {
@@ -65,6 +68,44 @@ public class PieceTypeAlignmentRule extends Rule {
 
 	public void setPaths(ArrayList<TaggedPath> paths) {
 		this.paths = paths;
+		invalidate();
+	}
+
+	@Override
+	protected RulePredicate compile() {
+		if (piecetypes.contains(Grammar.MACRO_ALL)) {
+			return ConstantPredicate.NOT_VALID;
+		}
+
+		else if (piecetypes.contains(Grammar.MACRO_NONE)) {
+			return ConstantPredicate.VALID;
+		}
+
+		int[] ids = new int[piecetypes.size()];
+		for (int index = 0; index < ids.length; index++) {
+			ids[index] = PiecesRepository.getInstance().getTypeId(piecetypes.get(index));
+		}
+
+		int[] colorids = new int[paths.size()];
+		int[][] xincrements = new int[paths.size()][];
+		int[][] yincrements = new int[paths.size()][];
+		for (int index = 0; index < colorids.length; index++) {
+			TaggedPath path = paths.get(index);
+			if (path.getTag().getColor().equals(Grammar.MACRO_ALL)) {
+				colorids[index] = AlignmentPredicate.ALL_COLORS;
+			} else {
+				colorids[index] = path.getTag().getColorid();
+			}
+
+			int length = path.getPath() == null ? 0 : path.getPath().size();
+			xincrements[index] = new int[length];
+			yincrements[index] = new int[length];
+			for (int step = 0; step < length; step++) {
+				xincrements[index][step] = path.getPath().get(step).getX();
+				yincrements[index][step] = path.getPath().get(step).getY();
+			}
+		}
+		return new AlignmentPredicate(createMask(ids), colorids, xincrements, yincrements);
 	}
 
 	public <R> R evaluate(Evaluator<R> evaluator) {
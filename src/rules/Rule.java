@@ -2,6 +2,7 @@ package rules;
 
 import board.components.Piece;
 import compiler.lang.RuleGrammar;
+import engine.MovementValidator;
 import engine.visitor.Evaluator;
 import engine.visitor.RuleEvaluator;
 import strategy.data.MovementPatern;
@@ -22,6 +23,7 @@ import strategy.data.MovementPatern;
  * @see RuleGrammar
  * @see Piece
  * @see MovementPatern
+ * @see RulePredicate
  * @author Dorian CHENET
  *
  */
@@ -29,6 +31,9 @@ public abstract class Rule {
 
 	private int evalutaionpriority = 0;
 
+	// The compiled form of the rule, built at the first use.
+	private RulePredicate predicate = null;
+
 	public Rule(int evalutaionpriority) {
 		this.evalutaionpriority = evalutaionpriority;
 	}
@@ -47,6 +52,41 @@ public abstract class Rule {
 
 	public abstract <R> R evaluate(Evaluator<R> evaluator);
 
+	/**
+	 * @return the predicate compiled from the rule, it is called by the
+	 *         {@link MovementValidator} for every move.
+	 */
+	public RulePredicate getPredicate() {
+		if (predicate == null) {
+			predicate = compile();
+		}
+		return predicate;
+	}
+
+	// Compiling the rule, the fields of the rule are read once.
+	protected abstract RulePredicate compile();
+
+	// The predicate is compiled again after a field of the rule changed.
+	protected void invalidate() {
+		predicate = null;
+	}
+
+	/**
+	 * @param ids
+	 * @return a bit mask of the given ids, 64 ids per word.
+	 */
+	protected static long[] createMask(int[] ids) {
+		int words = 1;
+		for (int id : ids) {
+			words = Math.max(words, (id >> 6) + 1);
+		}
+		long[] mask = new long[words];
+		for (int id : ids) {
+			mask[id >> 6] |= 1L << id;
+		}
+		return mask;
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -0,0 +1,39 @@
+package rules;
+
+import board.Board;
+import board.components.Piece;
+import compiler.builders.RuleBuilder;
+import compiler.lang.ValidityGrammar;
+import engine.MovementValidator;
+import engine.visitor.RuleEvaluator;
+
+/**
+ * A rule predicate is the compiled form of a {@link Rule}: the fields of the
+ * rule are read once, when the {@link RuleBuilder} builds the rule, and turned
+ * into arrays and bit masks of ids, so that the {@link MovementValidator}
+ * checks a move with a few array reads instead of going through the
+ * {@link RuleEvaluator}.
+ * 
+ * A predicate gives the same validity as the RuleEvaluator for its rule.
+ * 
+ * @see Rule
+ * @see ValidityGrammar
+ * @author Dorian CHENET
+ *
+ */
+public interface RulePredicate {
+
+	/**
+	 * @param square
+	 *            the square the rule is applied from.
+	 * @param path
+	 *            the compiled path of the move, its last square is the final
+	 *            position of the move.
+	 * @param piece
+	 *            the moving piece.
+	 * @param board
+	 * @return the validity of the move {@link ValidityGrammar}.
+	 */
+	int evaluate(int square, int[] path, Piece piece, Board board);
+
+}
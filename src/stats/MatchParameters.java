@@ -13,4 +13,27 @@ public class MatchParameters {
 
 	public static final String BLACK_COLOR = "BLACK";
 
+	// The ids of the colors, compared instead of the colors in the engine.
+	public static final int RED_ID = 0;
+
+	public static final int BLACK_ID = 1;
+
+	// The id of any other value of a color (ALL in a tag, undefined).
+	public static final int NO_COLOR_ID = -1;
+
+	/**
+	 * @param color
+	 * @return the id of the color, NO_COLOR_ID if it is neither RED nor
+	 *         BLACK.
+	 */
+	public static int getColorId(String color) {
+		if (RED_COLOR.equals(color)) {
+			return RED_ID;
+		} else if (BLACK_COLOR.equals(color)) {
+			return BLACK_ID;
+		} else {
+			return NO_COLOR_ID;
+		}
+	}
+
 }
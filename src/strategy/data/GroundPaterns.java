@@ -0,0 +1,108 @@
+package strategy.data;
+
+import java.util.ArrayList;
+
+import board.components.PieceModel;
+import compiler.lang.Grammar;
+import engine.MovementValidator;
+import repositories.GroundsRepository;
+
+/**
+ * The movement paterns of a piece type for one color, sorted once by ground
+ * type: for each ground id (see {@link GroundsRepository}), the standard and
+ * the alternative paterns the {@link MovementValidator} uses on that ground.
+ * The paterns of a ground are the ones tagged with the ground, or the DEFAULT
+ * ones if there is none, in the order of the settings file.
+ *
+ * They are built when the {@link PieceModel} is registered and shared by all
+ * the pieces of the type and color, the arrays must not be modified.
+ *
+ * @see PieceModel
+ * @see MovementValidator
+ * @author Dorian CHENET
+ *
+ */
+public class GroundPaterns {
+
+	// The paterns of a piece without movement paterns.
+	public static final GroundPaterns NONE = new GroundPaterns(new ArrayList<MovementPatern>());
+
+	// The paterns by ground id, the grounds without a specific patern share
+	// the default arrays.
+	private MovementPatern[][] standardpaterns = null;
+	private MovementPatern[][] alternativepaterns = null;
+
+	private MovementPatern[] defaultstandardpaterns = null;
+	private MovementPatern[] defaultalternativepaterns = null;
+
+	/**
+	 * @param paterns
+	 *            the movement paterns of a piece, already selected for its
+	 *            color.
+	 */
+	public GroundPaterns(ArrayList<MovementPatern> paterns) {
+		ArrayList<MovementPatern> standard = select(paterns, Grammar.TAG_STANDARD);
+		ArrayList<MovementPatern> alternative = select(paterns, Grammar.TAG_ALTERNATIVE);
+
+		int defaultid = GroundsRepository.getInstance().getGroundId(Grammar.DEFAULT_GROUND);
+		defaultstandardpaterns = onGround(standard, defaultid);
+		defaultalternativepaterns = onGround(alternative, defaultid);
+
+		// The ground of every tag already has an id, a ground named later has
+		// no specific patern.
+		int grounds = 0;
+		for (MovementPatern patern : paterns) {
+			grounds = Math.max(grounds, patern.getTag().getGroundid() + 1);
+		}
+
+		standardpaterns = new MovementPatern[grounds][];
+		alternativepaterns = new MovementPatern[grounds][];
+		for (int groundid = 0; groundid < grounds; groundid++) {
+			standardpaterns[groundid] = onGround(standard, groundid);
+			if (standardpaterns[groundid].length == 0) {
+				standardpaterns[groundid] = defaultstandardpaterns;
+			}
+
+			alternativepaterns[groundid] = onGround(alternative, groundid);
+			if (alternativepaterns[groundid].length == 0) {
+				alternativepaterns[groundid] = defaultalternativepaterns;
+			}
+		}
+	}
+
+	public MovementPatern[] getStandardPaterns(int groundid) {
+		if (groundid < standardpaterns.length) {
+			return standardpaterns[groundid];
+		}
+		return defaultstandardpaterns;
+	}
+
+	public MovementPatern[] getAlternativePaterns(int groundid) {
+		if (groundid < alternativepaterns.length) {
+			return alternativepaterns[groundid];
+		}
+		return defaultalternativepaterns;
+	}
+
+	// The paterns of the specification, or of both (ALL).
+	private static ArrayList<MovementPatern> select(ArrayList<MovementPatern> paterns, String specification) {
+		ArrayList<MovementPatern> paternslist = new ArrayList<MovementPatern>();
+		for (MovementPatern patern : paterns) {
+			if (patern.getTag().getSpecification().equals(specification)
+					|| patern.getTag().getSpecification().equals(Grammar.MACRO_ALL)) {
+				paternslist.add(patern);
+			}
+		}
+		return paternslist;
+	}
+
+	private static MovementPatern[] onGround(ArrayList<MovementPatern> paterns, int groundid) {
+		ArrayList<MovementPatern> paternslist = new ArrayList<MovementPatern>();
+		for (MovementPatern patern : paterns) {
+			if (patern.getTag().getGroundid() == groundid) {
+				paternslist.add(patern);
+			}
+		}
+		return paternslist.toArray(new MovementPatern[paternslist.size()]);
+	}
+}
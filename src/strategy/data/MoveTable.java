@@ -0,0 +1,75 @@
+package strategy.data;
+
+import board.BoardParameters;
+import compiler.builders.MoveTableBuilder;
+import engine.MovementValidator;
+
+/**
+ * A move table is the compiled form of a {@link MovementPatern}. For every
+ * origin square of the board it contains the paths of the movement patern as
+ * arrays of square indexes (x * BOARD_Y_LENGTH + y): each array lists every
+ * square the piece goes through, the last one being the final position of the
+ * move. A square of the path which is out of the board is set to OFF_BOARD.
+ * The paths ending out of the board are not kept.
+ * 
+ * Move tables are built once by the {@link MoveTableBuilder} during the
+ * compilation process so that the {@link MovementValidator} does not have to
+ * walk the paths of the movement paterns at every move generation.
+ * 
+ * @see MovementPatern
+ * @see MoveTableBuilder
+ * @see MovementValidator
+ * @author Dorian CHENET
+ *
+ */
+public class MoveTable {
+
+	public static final int OFF_BOARD = -1;
+
+	// The compiled paths, indexed by origin square.
+	private int[][][] paths = new int[BoardParameters.BOARD_SQUARES][][];
+
+	// The final positions of the compiled paths, indexed by origin square.
+	private int[][] destinations = new int[BoardParameters.BOARD_SQUARES][];
+
+	// Every square crossed by the compiled paths as a bit plane (one bit per
+	// square), indexed by origin square.
+	private long[][] reaches = new long[BoardParameters.BOARD_SQUARES][];
+
+	public MoveTable() {
+
+	}
+
+	public int[][] getPaths(int origin) {
+		return paths[origin];
+	}
+
+	public int[] getDestinations(int origin) {
+		return destinations[origin];
+	}
+
+	/**
+	 * @param origin
+	 * @return the squares crossed by the paths starting on the origin square,
+	 *         one bit per square ({@link BoardParameters#BITBOARD_WORDS}
+	 *         longs).
+	 */
+	public long[] getReach(int origin) {
+		return reaches[origin];
+	}
+
+	public void setPaths(int origin, int[][] originpaths) {
+		paths[origin] = originpaths;
+		destinations[origin] = new int[originpaths.length];
+		reaches[origin] = new long[BoardParameters.BITBOARD_WORDS];
+		for (int index = 0; index < originpaths.length; index++) {
+			destinations[origin][index] = originpaths[index][originpaths[index].length - 1];
+			for (int square : originpaths[index]) {
+				if (square != OFF_BOARD) {
+					reaches[origin][square >> 6] |= 1L << square;
+				}
+			}
+		}
+	}
+
+}
@@ -25,6 +25,7 @@ import tags.MovementTag;
  * 
  * @see MovementTag
  * @see TaggedPath
+ * @see MoveTable
  * @see PieceModel
  * @see Piece
  * @see RuleEvaluator
@@ -37,6 +38,13 @@ public class MovementPatern {
 	private MovementTag tag = new MovementTag();
 	private ArrayList<LinkedList<Coordinates>> pathlist = new ArrayList<LinkedList<Coordinates>>();
 
+	/**
+	 * The compiled form of the path list, built once the patern is complete.
+	 * 
+	 * @see MoveTable
+	 */
+	private MoveTable movetable = null;
+
 	public MovementPatern() {
 	}
 
@@ -67,6 +75,14 @@ public class MovementPatern {
 		this.pathlist = movementpatern;
 	}
 
+	public MoveTable getMovetable() {
+		return movetable;
+	}
+
+	public void setMovetable(MoveTable movetable) {
+		this.movetable = movetable;
+	}
+
 	@Override
 	public String toString() {
 		String str = "TAG=" + tag.toString() + "\n";
@@ -0,0 +1,73 @@
+package strategy.data;
+
+import java.util.Arrays;
+
+import board.Board;
+import board.components.Piece;
+import engine.MovementValidator;
+
+/**
+ * A list of squares (x * BOARD_Y_LENGTH + y, see {@link Board#square}) stored
+ * in an array of ints. It is used by the {@link MovementValidator} to give the
+ * possible moves and the covered zone of a {@link Piece} without creating
+ * {@link Coordinates}. The array grows when needed and is never shrunk, so
+ * that filling the list again does not allocate anything.
+ *
+ * @see Piece
+ * @see MovementValidator
+ * @author Dorian CHENET
+ *
+ */
+public class SquareList {
+
+	private int[] squares = new int[16];
+	private int size = 0;
+
+	public SquareList() {
+
+	}
+
+	public void add(int square) {
+		if (size == squares.length) {
+			squares = Arrays.copyOf(squares, size * 2);
+		}
+		squares[size] = square;
+		size++;
+	}
+
+	public void addAll(SquareList list) {
+		for (int index = 0; index < list.size; index++) {
+			add(list.squares[index]);
+		}
+	}
+
+	public int get(int index) {
+		return squares[index];
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public void clear() {
+		size = 0;
+	}
+
+	public boolean contains(int square) {
+		for (int index = 0; index < size; index++) {
+			if (squares[index] == square) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	public int[] toArray() {
+		return Arrays.copyOf(squares, size);
+	}
+
+	@Override
+	public String toString() {
+		return "SquareList " + Arrays.toString(toArray());
+	}
+}
@@ -1,6 +1,8 @@
 package tags;
 
 import compiler.lang.DefaultSettings;
+import repositories.GroundsRepository;
+import stats.MatchParameters;
 import strategy.data.MovementPatern;
 import strategy.data.TaggedPath;
 
@@ -38,11 +40,16 @@ public class MovementTag {
 	 * the same type might be able to go only to the left. 
 	 * If the movement is the same for both RED and BLACK colors then it is 
 	 * referenced as ALL.
+	 * 
+	 * The ground type and the color are also kept as ids (see
+	 * GroundsRepository and MatchParameters), compared by the engine.
 	 */
 	private String piecetype = DefaultSettings.UNDEFINED_STRING;
 	private String groundtype = DefaultSettings.UNDEFINED_STRING;
 	private String specification = DefaultSettings.UNDEFINED_STRING;
 	private String color = DefaultSettings.UNDEFINED_STRING;
+	private int groundid = GroundsRepository.getInstance().getGroundId(groundtype);
+	private int colorid = MatchParameters.NO_COLOR_ID;
 
 	public MovementTag() {
 		// TODO Auto-generated constructor stub
@@ -53,6 +60,8 @@ public class MovementTag {
 		this.groundtype = groundtype;
 		this.specification = specification;
 		this.color = color;
+		this.groundid = GroundsRepository.getInstance().getGroundId(groundtype);
+		this.colorid = MatchParameters.getColorId(color);
 	}
 
 	public String getPiecetype() {
@@ -71,12 +80,21 @@ public class MovementTag {
 		return color;
 	}
 
+	public int getGroundid() {
+		return groundid;
+	}
+
+	public int getColorid() {
+		return colorid;
+	}
+
 	public void setPiecetype(String piecetype) {
 		this.piecetype = piecetype;
 	}
 
 	public void setGroundtype(String groundtype) {
 		this.groundtype = groundtype;
+		this.groundid = GroundsRepository.getInstance().getGroundId(groundtype);
 	}
 
 	public void setSpecification(String specification) {
@@ -85,6 +103,7 @@ public class MovementTag {
 
 	public void setColor(String color) {
 		this.color = color;
+		this.colorid = MatchParameters.getColorId(color);
 	}
 
 	public boolean isDefined() {
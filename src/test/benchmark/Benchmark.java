@@ -0,0 +1,37 @@
+package test.benchmark;
+
+/**
+ * A benchmark measured by the {@link BenchmarkRunner}. The setUp() method is
+ * called once before the measure, the run() method is the operation which is
+ * measured: it is called until the time of the measure is spent. The value
+ * returned by run() is kept by the runner so that the work done is not
+ * removed by the compiler.
+ *
+ * @see BenchmarkRunner
+ * @see BenchmarkSuite
+ * @author Dorian CHENET
+ *
+ */
+public abstract class Benchmark {
+
+	private String name = "";
+
+	public Benchmark(String name) {
+		this.name = name;
+	}
+
+	public void setUp() {
+
+	}
+
+	public abstract Object run();
+
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public String toString() {
+		return "Benchmark [name=" + name + "]";
+	}
+}
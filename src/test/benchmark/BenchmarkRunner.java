@@ -0,0 +1,168 @@
+package test.benchmark;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * This runner measures the {@link Benchmark} of the {@link BenchmarkSuite}.
+ * Each benchmark is first run during the warmup time (so that the code is
+ * compiled by the JVM), then it is run during the measure time and the
+ * average time of an operation (ns/op) and the average number of bytes
+ * allocated by an operation (B/op) are reported.
+ *
+ * The results can be written in a file and compared to the results of a
+ * previous run (baseline) to judge a change.
+ *
+ * Usage: BenchmarkRunner [-w warmup ms] [-m measure ms] [-o results file] [-b
+ * baseline file] [name filter]
+ *
+ * @see Benchmark
+ * @see BenchmarkSuite
+ * @author Dorian CHENET
+ *
+ */
+public class BenchmarkRunner {
+
+	// The results of the operations are kept here so that they are not removed
+	// by the compiler.
+	private static volatile Object sink = null;
+
+	private long warmup = 2000;
+	private long measure = 3000;
+
+	// Used to read the number of bytes allocated by the thread.
+	private com.sun.management.ThreadMXBean threadbean = (com.sun.management.ThreadMXBean) ManagementFactory
+			.getThreadMXBean();
+
+	public BenchmarkRunner(long warmup, long measure) {
+		this.warmup = warmup;
+		this.measure = measure;
+	}
+
+	public static void main(String[] args) {
+		long warmup = 2000;
+		long measure = 3000;
+		String output = null;
+		String baseline = null;
+		String filter = "";
+
+		for (int index = 0; index < args.length; index++) {
+			if (args[index].equals("-w")) {
+				warmup = Long.parseLong(args[++index]);
+			} else if (args[index].equals("-m")) {
+				measure = Long.parseLong(args[++index]);
+			} else if (args[index].equals("-o")) {
+				output = args[++index];
+			} else if (args[index].equals("-b")) {
+				baseline = args[++index];
+			} else {
+				filter = args[index];
+			}
+		}
+
+		BenchmarkRunner runner = new BenchmarkRunner(warmup, measure);
+		HashMap<String, double[]> baselineresults = baseline != null ? readResults(baseline)
+				: new HashMap<String, double[]>();
+		ArrayList<String> lines = new ArrayList<String>();
+
+		for (Benchmark benchmark : BenchmarkSuite.createBenchmarks()) {
+			if (benchmark.getName().contains(filter)) {
+				double[] result = runner.run(benchmark);
+				String line = String.format("%-48s %14.1f ns/op %14.1f B/op", benchmark.getName(), result[0],
+						result[1]);
+
+				double[] previous = baselineresults.get(benchmark.getName());
+				if (previous != null) {
+					line += String.format(" (%+.1f%% time, %+.1f%% alloc)", change(previous[0], result[0]),
+							change(previous[1], result[1]));
+				}
+				System.out.println(line);
+				lines.add(benchmark.getName() + "\t" + result[0] + "\t" + result[1]);
+			}
+		}
+
+		if (output != null) {
+			writeResults(output, lines);
+		}
+	}
+
+	/**
+	 * Measures a benchmark.
+	 *
+	 * @param benchmark
+	 * @return the time of an operation in nanoseconds and the number of bytes
+	 *         allocated by an operation.
+	 */
+	public double[] run(Benchmark benchmark) {
+		benchmark.setUp();
+
+		long end = System.nanoTime() + warmup * 1000000L;
+		while (System.nanoTime() < end) {
+			sink = benchmark.run();
+		}
+
+		long thread = Thread.currentThread().getId();
+		long operations = 0;
+		long bytes = threadbean.getThreadAllocatedBytes(thread);
+		long start = System.nanoTime();
+		end = start + measure * 1000000L;
+		long now = start;
+
+		while (now < end) {
+			sink = benchmark.run();
+			operations++;
+			now = System.nanoTime();
+		}
+
+		bytes = threadbean.getThreadAllocatedBytes(thread) - bytes;
+		return new double[] { (double) (now - start) / operations, (double) bytes / operations };
+	}
+
+	// The change from the baseline, in percent.
+	private static double change(double previous, double current) {
+		if (previous == 0) {
+			return 0;
+		}
+		return (current - previous) * 100 / previous;
+	}
+
+	private static HashMap<String, double[]> readResults(String filename) {
+		HashMap<String, double[]> results = new HashMap<String, double[]>();
+		try {
+			BufferedReader reader = new BufferedReader(new FileReader(filename));
+			String line;
+			while ((line = reader.readLine()) != null) {
+				String[] fields = line.split("\t");
+				if (fields.length == 3) {
+					results.put(fields[0],
+							new double[] { Double.parseDouble(fields[1]), Double.parseDouble(fields[2]) });
+				}
+			}
+			reader.close();
+		} catch (FileNotFoundException e) {
+			System.err.println(e.getMessage());
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		}
+		return results;
+	}
+
+	private static void writeResults(String filename, ArrayList<String> lines) {
+		try {
+			PrintWriter writer = new PrintWriter(new FileWriter(filename));
+			for (String line : lines) {
+				writer.println(line);
+			}
+			writer.close();
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		}
+	}
+}
@@ -0,0 +1,299 @@
+package test.benchmark;
+
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+import board.Board;
+import board.components.Piece;
+import compiler.interpreters.BoardSettingsCompiler;
+import compiler.interpreters.GroundSettingsCompiler;
+import compiler.interpreters.PieceSettingsCompiler;
+import engine.MainEngine;
+import engine.MoveGenerator;
+import engine.MovementValidator;
+import engine.TranspositionTable;
+import engine.simulation.Simulation;
+import graphic.BoardGraphic;
+import intelligence.AlphaBetaSearch;
+import intelligence.Chesster;
+import intelligence.PriorityMove;
+import stats.Match;
+import stats.MatchContext;
+import stats.MatchParameters;
+import strategy.data.Coordinates;
+import test.io.InOutParameters;
+
+/**
+ * The benchmarks of the hot paths of the game:
+ *
+ * - the generation of the moves of a piece by the {@link MovementValidator},
+ * for each type of piece.
+ *
+ * - a turn of the {@link MainEngine} (without the move of the player) on the
+ * starting position and on a position where the player who plays is in check.
+ *
+ * - a new turn of the {@link MainEngine} played by players who do not move,
+ * its B/op being the allocations of a turn of the game window.
+ *
+ * - a reset of the {@link Simulation} and the simulation of a move.
+ *
+ * - the compilation of the bundled settings files.
+ *
+ * - the painting of the {@link BoardGraphic} into an image (the runner must be
+ * started with -Djava.awt.headless=true when there is no display).
+ *
+ * @see Benchmark
+ * @see BenchmarkRunner
+ * @author Dorian CHENET
+ *
+ */
+public class BenchmarkSuite {
+
+	// The number of moves played at most to find a position with a check.
+	private static final int MAX_CHECK_MOVES = 200;
+
+	public static ArrayList<Benchmark> createBenchmarks() {
+		ArrayList<Benchmark> benchmarks = new ArrayList<Benchmark>();
+
+		loadSettings();
+
+		createValidatorBenchmarks(benchmarks);
+		benchmarks.add(createTurnBenchmark("MainEngine.advance (start)", false));
+		benchmarks.add(createTurnBenchmark("MainEngine.advance (check)", true));
+		benchmarks.add(createNewTurnBenchmark());
+		benchmarks.add(createSimulationBenchmark());
+		createCompilerBenchmarks(benchmarks);
+		benchmarks.add(createPaintBenchmark());
+
+		return benchmarks;
+	}
+
+	// The grounds and the pieces are compiled once, they are shared by all the
+	// matches.
+	private static void loadSettings() {
+		GroundSettingsCompiler gsc = new GroundSettingsCompiler();
+		gsc.loadSettings(InOutParameters.GROUND_SETTING_PATH);
+
+		PieceSettingsCompiler psc = new PieceSettingsCompiler();
+		psc.loadSettings(InOutParameters.MOVEMENT_SETTINGS_PATH);
+	}
+
+	// A match on the starting position of the bundled board, the first turn
+	// is generated.
+	private static MatchContext createContext() {
+		MatchContext context = new MatchContext();
+		BoardSettingsCompiler bsc = new BoardSettingsCompiler(context);
+		bsc.loadSettings(InOutParameters.BOARD_SETTING_PATH);
+		context.getEngine().advance();
+		return context;
+	}
+
+	private static void createValidatorBenchmarks(ArrayList<Benchmark> benchmarks) {
+		MatchContext context = createContext();
+
+		// The moves are generated on a copy of the board so that the pieces of
+		// the match are not modified.
+		Board board = new Board(context.getBoard());
+		LinkedHashMap<String, Piece> types = new LinkedHashMap<String, Piece>();
+		for (Piece piece : board.getPieces(MatchParameters.RED_COLOR)) {
+			if (!types.containsKey(piece.getType())) {
+				types.put(piece.getType(), piece);
+			}
+		}
+
+		for (Piece piece : types.values()) {
+			MovementValidator mvalidator = new MovementValidator(board);
+			benchmarks.add(new Benchmark("MovementValidator.generatePieceMovements " + piece.getType()) {
+				@Override
+				public Object run() {
+					mvalidator.clearCoveredZone();
+					piece.getPossiblemoves().clear();
+					return mvalidator.generatePieceMovements(piece);
+				}
+			});
+		}
+	}
+
+	private static Benchmark createTurnBenchmark(String name, Boolean check) {
+		return new Benchmark(name) {
+
+			private MatchContext context = null;
+
+			@Override
+			public void setUp() {
+				context = check ? createCheckContext() : createContext();
+				if (check && !context.getCurrentplayer().getIschecked()) {
+					System.err.println(getName() + ": no check found, the last position is used");
+				}
+			}
+
+			@Override
+			public Object run() {
+				/*
+				 * Going back to the turn before the last one: the turn
+				 * generated swaps the players again, thus the same position is
+				 * generated by every run.
+				 */
+				context.swap();
+				context.setTurnnumber(context.getTurnnumber() - 1);
+				context.getEngine().advance();
+				return context.getCurrentplayer();
+			}
+		};
+	}
+
+	// The players of the match are not Chesster, they do not move when they
+	// are asked to play.
+	private static Benchmark createNewTurnBenchmark() {
+		return new Benchmark("MainEngine.newTurn (start)") {
+
+			private MatchContext context = null;
+
+			@Override
+			public void setUp() {
+				context = createContext();
+			}
+
+			@Override
+			public Object run() {
+				context.swap();
+				context.setTurnnumber(context.getTurnnumber() - 1);
+				context.getEngine().newTurn();
+				return context.getCurrentplayer();
+			}
+		};
+	}
+
+	// Chesster plays against itself until the player who plays is in check.
+	private static MatchContext createCheckContext() {
+		MatchContext context = new MatchContext();
+
+		Chesster red = new Chesster(context, MatchParameters.RED_COLOR, new ArrayList<Piece>(),
+				new ArrayList<Piece>(), new ArrayList<Piece>());
+		Chesster black = new Chesster(context, MatchParameters.BLACK_COLOR, new ArrayList<Piece>(),
+				new ArrayList<Piece>(), new ArrayList<Piece>());
+
+		// A fixed depth gives the same game at every run.
+		red.setSearch(new AlphaBetaSearch(60000, 1, new TranspositionTable(1 << 10)));
+		black.setSearch(new AlphaBetaSearch(60000, 1, new TranspositionTable(1 << 10)));
+
+		context.setPlayer1(red);
+		context.setPlayer2(black);
+		context.setCurrentplayer(red);
+		context.setWaitingplayer(black);
+
+		BoardSettingsCompiler bsc = new BoardSettingsCompiler(context);
+		bsc.loadSettings(InOutParameters.BOARD_SETTING_PATH);
+		context.getEngine().advance();
+
+		for (int moves = 0; moves < MAX_CHECK_MOVES && !context.getCurrentplayer().getIschecked(); moves++) {
+			PriorityMove move = ((Chesster) context.getCurrentplayer()).selectMove();
+			if (move == null || context.getWinner() != null) {
+				break;
+			}
+			((Chesster) context.getCurrentplayer()).playMove(move);
+			context.getEngine().advance();
+		}
+
+		red.getSearch().close();
+		black.getSearch().close();
+		return context;
+	}
+
+	private static Benchmark createSimulationBenchmark() {
+		return new Benchmark("Simulation.reset+simulate") {
+
+			private Simulation simulation = null;
+			private Coordinates initial = null;
+			private Coordinates end = null;
+
+			@Override
+			public void setUp() {
+				MatchContext context = createContext();
+				simulation = new Simulation(context);
+
+				// The first legal move of the player who plays.
+				int move = new MoveGenerator(new Board(context.getBoard()))
+						.generateLegalMoves(context.getCurrentplayer().getColor())[0];
+				initial = new Coordinates(Board.squareX(MoveGenerator.from(move)),
+						Board.squareY(MoveGenerator.from(move)));
+				end = new Coordinates(Board.squareX(MoveGenerator.to(move)), Board.squareY(MoveGenerator.to(move)));
+			}
+
+			@Override
+			public Object run() {
+				simulation.reset();
+				return simulation.simulate(initial, end);
+			}
+		};
+	}
+
+	private static void createCompilerBenchmarks(ArrayList<Benchmark> benchmarks) {
+		benchmarks.add(new Benchmark("GroundSettingsCompiler.loadSettings") {
+			@Override
+			public Object run() {
+				GroundSettingsCompiler gsc = new GroundSettingsCompiler();
+				gsc.loadSettings(InOutParameters.GROUND_SETTING_PATH);
+				return gsc;
+			}
+		});
+
+		benchmarks.add(new Benchmark("PieceSettingsCompiler.loadSettings") {
+			@Override
+			public Object run() {
+				PieceSettingsCompiler psc = new PieceSettingsCompiler();
+				psc.loadSettings(InOutParameters.MOVEMENT_SETTINGS_PATH);
+				return psc;
+			}
+		});
+
+		String[] boards = { InOutParameters.BOARD_SETTING_PATH, InOutParameters.BOARD_ICE_SETTING_PATH,
+				InOutParameters.BOARD_SAND_SETTING_PATH, InOutParameters.BOARD_MONTAIN_SETTING_PATH };
+
+		for (String boardfile : boards) {
+			benchmarks.add(new Benchmark("BoardSettingsCompiler.loadSettings "
+					+ boardfile.substring(boardfile.lastIndexOf('/') + 1)) {
+
+				private MatchContext context = new MatchContext();
+
+				@Override
+				public Object run() {
+					// The compiler adds the pieces to the players.
+					context.getPlayer1().getPieces().clear();
+					context.getPlayer2().getPieces().clear();
+
+					BoardSettingsCompiler bsc = new BoardSettingsCompiler(context);
+					bsc.loadSettings(boardfile);
+					return bsc;
+				}
+			});
+		}
+	}
+
+	// The board is painted from the match of the game window.
+	private static Benchmark createPaintBenchmark() {
+		return new Benchmark("BoardGraphic.paintComponent") {
+
+			private BufferedImage image = null;
+
+			@Override
+			public void setUp() {
+				BoardSettingsCompiler bsc = new BoardSettingsCompiler();
+				bsc.loadSettings(InOutParameters.BOARD_SETTING_PATH);
+				Match.getInstance().getEngine().advance();
+
+				image = new BufferedImage(BoardGraphic.LENGTH, BoardGraphic.HEIGTH, BufferedImage.TYPE_INT_RGB);
+			}
+
+			@Override
+			public Object run() {
+				Graphics2D graphics = image.createGraphics();
+				BoardGraphic.getInstance().paintComponent(graphics);
+				graphics.dispose();
+				return image;
+			}
+		};
+	}
+}
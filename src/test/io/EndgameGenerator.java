@@ -0,0 +1,488 @@
+package test.io;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import board.Board;
+import board.BoardParameters;
+import board.components.Piece;
+import compiler.interpreters.GroundSettingsCompiler;
+import compiler.interpreters.PieceSettingsCompiler;
+import engine.MoveGenerator;
+import intelligence.Chesster;
+import intelligence.EndgameTable;
+import intelligence.EndgameTablebase;
+import stats.MatchParameters;
+
+/**
+ * This tool generates the {@link EndgameTablebase} of a board: the
+ * {@link EndgameTable} of the endings of the two winning condition pieces and
+ * up to a few other pieces, for the pieces of the piece settings and the
+ * grounds of the board.
+ *
+ * The squares of each piece are the squares it can reach from its squares on
+ * the board, the winning condition pieces standing anywhere they can reach
+ * (palaces, grounds and rules are thus taken into account).
+ *
+ * The values are found by retrograde analysis, with the moves of the
+ * {@link MoveGenerator}: the positions where the player to move has no move
+ * are lost, then each pass decides the positions one ply further from the
+ * end. A position is won when a move leads to a position lost one ply before,
+ * lost when all its moves lead to won positions, the last of them one ply
+ * before. The captures lead to the tables of the smaller endings, which are
+ * generated first. The positions left at the end are draws. The positions of
+ * each pass are shared among a pool of threads.
+ *
+ * A move leading to a position out of the squares of the table counts as a
+ * draw, so the wins and losses of the tables are always right.
+ *
+ * Usage: EndgameGenerator [board file] [max pieces] [threads] [materials]
+ *
+ * A material is a list of pieces such as RED:CHARIOT,BLACK:CANNON, all the
+ * materials of up to max pieces (winning condition pieces included) are
+ * generated when none is given.
+ *
+ * @see EndgameTablebase
+ * @see Chesster
+ * @author Dorian CHENET
+ *
+ */
+public class EndgameGenerator {
+
+	private static final int SQUARES = BoardParameters.BOARD_SQUARES;
+
+	// The value of a position which is not decided yet.
+	private static final int UNDECIDED = Integer.MIN_VALUE;
+
+	// The number of tasks of a pass for each thread.
+	private static final int TASKS_PER_THREAD = 8;
+
+	private Board start = null;
+
+	// A piece of each kind ("COLOR:TYPE") of the board, and the squares it can
+	// reach.
+	private TreeMap<String, Piece> kinds = new TreeMap<String, Piece>();
+	private HashMap<String, int[]> kindsquares = new HashMap<String, int[]>();
+
+	// The winning condition pieces, RED first, and the squares they can reach.
+	private Piece[] generals = new Piece[2];
+	private int[][] generalsquares = new int[2][];
+
+	// The positions of the winning condition pieces they can reach together.
+	private ArrayList<int[]> generalpairs = new ArrayList<int[]>();
+
+	private EndgameTablebase tablebase = new EndgameTablebase();
+
+	private ExecutorService pool = null;
+	private int threads = 0;
+
+	public static void main(String[] args) {
+		String boardfile = args.length > 0 ? args[0] : InOutParameters.BOARD_SETTING_PATH;
+		int maxpieces = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		GroundSettingsCompiler gsc = new GroundSettingsCompiler();
+		gsc.loadSettings(InOutParameters.GROUND_SETTING_PATH);
+
+		PieceSettingsCompiler psc = new PieceSettingsCompiler();
+		psc.loadSettings(InOutParameters.MOVEMENT_SETTINGS_PATH);
+
+		EndgameGenerator generator = new EndgameGenerator(SelfPlayRunner.loadBoard(boardfile), threads);
+		try {
+			if (args.length > 3) {
+				for (int index = 3; index < args.length; index++) {
+					generator.generate(new ArrayList<String>(Arrays.asList(args[index].split(","))));
+				}
+			} else {
+				generator.generateAll(new ArrayList<String>(), maxpieces - 2);
+			}
+
+			generator.tablebase.write(EndgameTablebase.getTablebasePath(boardfile));
+			System.out.println("written " + EndgameTablebase.getTablebasePath(boardfile));
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		} catch (InterruptedException e) {
+			System.err.println("Generation interrupted");
+		} catch (ExecutionException e) {
+			System.err.println("Generation failed: " + e.getCause());
+		}
+		generator.pool.shutdown();
+	}
+
+	/**
+	 * Finding the squares the pieces of the board can reach.
+	 *
+	 * @param start
+	 *            the starting position of the board.
+	 * @param threads
+	 */
+	public EndgameGenerator(Board start, int threads) {
+		this.start = start;
+		this.threads = threads;
+		this.pool = Executors.newFixedThreadPool(threads);
+
+		for (Piece piece : start.getPieces()) {
+			if (piece.getWincondition()) {
+				generals[piece.getColor().equals(MatchParameters.RED_COLOR) ? 0 : 1] = piece;
+			} else if (!kinds.containsKey(getKind(piece))) {
+				kinds.put(getKind(piece), piece);
+			}
+		}
+
+		findGeneralSquares();
+		for (String kind : kinds.keySet()) {
+			kindsquares.put(kind, findSquares(kind));
+		}
+	}
+
+	/**
+	 * Generating the tables of all the materials of up to the given number of
+	 * pieces which start with the given pieces, the kinds being taken in
+	 * order.
+	 */
+	private void generateAll(ArrayList<String> material, int pieces)
+			throws InterruptedException, ExecutionException {
+		generate(material);
+		if (pieces > 0) {
+			for (String kind : kinds.keySet()) {
+				if (material.isEmpty() || kind.compareTo(material.get(material.size() - 1)) >= 0) {
+					ArrayList<String> larger = new ArrayList<String>(material);
+					larger.add(kind);
+					generateAll(larger, pieces - 1);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Generating the table of a material, after the tables of its captures.
+	 *
+	 * @param material
+	 *            the kinds of the pieces, without the winning condition
+	 *            pieces.
+	 */
+	private void generate(ArrayList<String> material) throws InterruptedException, ExecutionException {
+		material.sort(null);
+		if (tablebase.getTable(String.join(",", material)) != null) {
+			return;
+		}
+		for (int index = 0; index < material.size(); index++) {
+			ArrayList<String> smaller = new ArrayList<String>(material);
+			smaller.remove(index);
+			generate(smaller);
+		}
+
+		long begin = System.nanoTime();
+		int slots = material.size() + 2;
+		String[] types = new String[slots];
+		String[] colors = new String[slots];
+		int[][] squares = new int[slots][];
+		Piece[] templates = new Piece[slots];
+
+		for (int slot = 0; slot < slots; slot++) {
+			templates[slot] = slot < 2 ? generals[slot] : kinds.get(material.get(slot - 2));
+			types[slot] = templates[slot].getType();
+			colors[slot] = templates[slot].getColor();
+			squares[slot] = slot < 2 ? generalsquares[slot] : kindsquares.get(material.get(slot - 2));
+		}
+		EndgameTable table = new EndgameTable(types, colors, squares);
+
+		// The tables of the captures, by captured kind.
+		HashMap<String, EndgameTable> captures = new HashMap<String, EndgameTable>();
+		int maxcapture = 0;
+		for (int index = 0; index < material.size(); index++) {
+			ArrayList<String> smaller = new ArrayList<String>(material);
+			smaller.remove(index);
+			EndgameTable capturetable = tablebase.getTable(String.join(",", smaller));
+			captures.put(material.get(index), capturetable);
+			for (int position = 0; position < capturetable.getSize(); position++) {
+				maxcapture = Math.max(maxcapture, EndgameTable.getDistance(capturetable.getValue(position)));
+			}
+		}
+
+		int[] work = new int[table.getSize()];
+		Arrays.fill(work, UNDECIDED);
+
+		// Each pass decides the positions at its distance from the end.
+		int distance = 0;
+		int decided = -1;
+		while (decided != 0 || distance <= maxcapture + 1) {
+			ArrayList<Future<Integer>> tasks = new ArrayList<Future<Integer>>();
+			int tasksize = Math.max(1, table.getSize() / (threads * TASKS_PER_THREAD) + 1);
+			for (int first = 0; first < table.getSize(); first += tasksize) {
+				int from = first;
+				int to = Math.min(table.getSize(), first + tasksize);
+				int pass = distance;
+				tasks.add(pool.submit(() -> decide(table, templates, captures, work, from, to, pass)));
+			}
+
+			decided = 0;
+			for (Future<Integer> task : tasks) {
+				decided += task.get();
+			}
+			distance++;
+		}
+
+		int wins = 0;
+		int losses = 0;
+		int longest = 0;
+		for (int index = 0; index < work.length; index++) {
+			if (work[index] == UNDECIDED) {
+				table.setValue(index, EndgameTable.DRAW);
+			} else if (work[index] > 0) {
+				table.setValue(index, EndgameTable.win(work[index]));
+				wins++;
+				longest = Math.max(longest, work[index]);
+			} else if (work[index] < 0) {
+				table.setValue(index, EndgameTable.loss(-work[index] - 1));
+				losses++;
+				longest = Math.max(longest, -work[index] - 1);
+			}
+		}
+		tablebase.addTable(table);
+
+		System.out.printf("[%s] %d positions, %d won, %d lost, longest %d plies, %.1f s%n", table.getMaterial(),
+				table.getSize(), wins, losses, longest, (System.nanoTime() - begin) / 1e9);
+	}
+
+	/**
+	 * A pass over some positions of a table.
+	 *
+	 * @param work
+	 *            the values of the positions: d for a win in d plies, -(d + 1)
+	 *            for a loss in d plies, 0 for a position which cannot be
+	 *            reached, UNDECIDED.
+	 * @param from
+	 *            the first index of the positions.
+	 * @param to
+	 *            the index after the last position.
+	 * @param distance
+	 *            the distance of the positions decided by the pass.
+	 * @return the number of positions decided.
+	 */
+	private int decide(EndgameTable table, Piece[] templates, HashMap<String, EndgameTable> captures, int[] work,
+			int from, int to, int distance) {
+		Board board = createBoard();
+		MoveGenerator generator = new MoveGenerator(board);
+		Piece[] pieces = new Piece[templates.length];
+		for (int slot = 0; slot < templates.length; slot++) {
+			pieces[slot] = new Piece(templates[slot]);
+		}
+		int[] slotsquares = new int[templates.length];
+		int decided = 0;
+
+		for (int index = from; index < to; index++) {
+			if (work[index] == UNDECIDED) {
+				String side = table.getPosition(index, slotsquares);
+
+				if (!setPosition(board, pieces, slotsquares, side)) {
+					work[index] = 0;
+				}
+
+				else {
+					int count = generator.generateLegalMoves(side, 0);
+					int[] moves = generator.getMoves(0);
+
+					if (distance == 0) {
+						if (count == 0) {
+							work[index] = -1;
+							decided++;
+						}
+					}
+
+					else {
+						boolean won = false;
+						boolean alllost = true;
+						int longest = -1;
+
+						for (int move = 0; move < count && !won; move++) {
+							board.makeMove(MoveGenerator.from(moves[move]), MoveGenerator.to(moves[move]));
+							int value = getValue(board, table, captures, work);
+							board.unmakeMove();
+
+							// The value is the one of the opponent.
+							if (value != UNDECIDED && value < 0 && -value - 1 == distance - 1) {
+								won = true;
+							} else if (value != UNDECIDED && value > 0 && value <= distance - 1) {
+								longest = Math.max(longest, value);
+							} else {
+								alllost = false;
+							}
+						}
+
+						if (won) {
+							work[index] = distance;
+							decided++;
+						} else if (alllost && longest == distance - 1) {
+							work[index] = -distance - 1;
+							decided++;
+						}
+					}
+				}
+			}
+		}
+		return decided;
+	}
+
+	// The value of the position after a move, in the table or in the table of
+	// the capture. A position out of the tables counts as a draw.
+	private int getValue(Board board, EndgameTable table, HashMap<String, EndgameTable> captures, int[] work) {
+		Piece captured = board.getLastCaptured();
+		if (captured == null) {
+			int index = table.getIndex(board);
+			return index == -1 ? 0 : work[index];
+		}
+
+		EndgameTable capturetable = captures.get(getKind(captured));
+		if (capturetable == null) {
+			return 0;
+		}
+		int index = capturetable.getIndex(board);
+		if (index == -1) {
+			return 0;
+		}
+		int value = capturetable.getValue(index);
+		if (value < 0) {
+			return -EndgameTable.getDistance(value) - 1;
+		}
+		return value;
+	}
+
+	// The squares each winning condition piece reaches, the two of them
+	// moving in turn from their squares on the board.
+	private void findGeneralSquares() {
+		boolean[] visited = new boolean[SQUARES * SQUARES];
+		boolean[][] reached = new boolean[2][SQUARES];
+		ArrayList<int[]> queue = new ArrayList<int[]>();
+
+		int[] first = { getSquare(generals[0]), getSquare(generals[1]) };
+		visited[first[0] * SQUARES + first[1]] = true;
+		queue.add(first);
+
+		Board board = createBoard();
+		MoveGenerator generator = new MoveGenerator(board);
+		Piece[] pieces = { new Piece(generals[0]), new Piece(generals[1]) };
+
+		for (int next = 0; next < queue.size(); next++) {
+			int[] pair = queue.get(next);
+			reached[0][pair[0]] = true;
+			reached[1][pair[1]] = true;
+
+			for (int color = 0; color < 2; color++) {
+				String side = generals[color].getColor();
+				setPosition(board, pieces, pair, side);
+				int count = generator.generateLegalMoves(side, 0);
+				for (int move = 0; move < count; move++) {
+					int[] moved = pair.clone();
+					moved[color] = MoveGenerator.to(generator.getMoves(0)[move]);
+					if (!visited[moved[0] * SQUARES + moved[1]]) {
+						visited[moved[0] * SQUARES + moved[1]] = true;
+						queue.add(moved);
+					}
+				}
+			}
+		}
+
+		generalpairs = queue;
+		generalsquares[0] = toSquares(reached[0]);
+		generalsquares[1] = toSquares(reached[1]);
+	}
+
+	// The squares a piece of the kind reaches from its squares on the board,
+	// alone with the winning condition pieces on any of their squares.
+	private int[] findSquares(String kind) {
+		boolean[] reached = new boolean[SQUARES];
+		for (Piece piece : start.getPieces()) {
+			if (getKind(piece).equals(kind)) {
+				reached[getSquare(piece)] = true;
+			}
+		}
+
+		Board board = createBoard();
+		MoveGenerator generator = new MoveGenerator(board);
+		Piece[] pieces = { new Piece(generals[0]), new Piece(generals[1]), new Piece(kinds.get(kind)) };
+		String side = kinds.get(kind).getColor();
+
+		boolean grown = true;
+		while (grown) {
+			grown = false;
+			for (int[] pair : generalpairs) {
+				ArrayList<Integer> queue = new ArrayList<Integer>();
+				for (int square = 0; square < SQUARES; square++) {
+					if (reached[square]) {
+						queue.add(square);
+					}
+				}
+
+				for (int next = 0; next < queue.size(); next++) {
+					int[] position = { pair[0], pair[1], queue.get(next) };
+					if (setPosition(board, pieces, position, side)) {
+						int count = generator.generateLegalMoves(side, 0);
+						for (int move = 0; move < count; move++) {
+							int target = MoveGenerator.to(generator.getMoves(0)[move]);
+							if (MoveGenerator.from(generator.getMoves(0)[move]) == position[2] && !reached[target]) {
+								reached[target] = true;
+								queue.add(target);
+								grown = true;
+							}
+						}
+					}
+				}
+			}
+		}
+		return toSquares(reached);
+	}
+
+	// A board holding the grounds of the starting position.
+	private Board createBoard() {
+		Board board = new Board();
+		board.setEnvironement(start.getEnvironement());
+		return board;
+	}
+
+	// Putting the pieces on their squares, false if two of them share a
+	// square.
+	private static boolean setPosition(Board board, Piece[] pieces, int[] squares, String side) {
+		board.clearUnits();
+		for (int slot = 0; slot < pieces.length; slot++) {
+			if (board.isOccupied(squares[slot])) {
+				return false;
+			}
+			pieces[slot].setCoordonates(Board.squareX(squares[slot]), Board.squareY(squares[slot]));
+			board.addPiece(pieces[slot]);
+		}
+		board.setSideToMove(side);
+		return true;
+	}
+
+	private static int[] toSquares(boolean[] reached) {
+		int count = 0;
+		for (boolean square : reached) {
+			count += square ? 1 : 0;
+		}
+		int[] squares = new int[count];
+		count = 0;
+		for (int square = 0; square < SQUARES; square++) {
+			if (reached[square]) {
+				squares[count] = square;
+				count++;
+			}
+		}
+		return squares;
+	}
+
+	private static int getSquare(Piece piece) {
+		return Board.square(piece.getCoordonates().getX(), piece.getCoordonates().getY());
+	}
+
+	private static String getKind(Piece piece) {
+		return piece.getColor() + ":" + piece.getType();
+	}
+}
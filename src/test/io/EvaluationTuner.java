@@ -0,0 +1,421 @@
+package test.io;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import board.Board;
+import board.BoardParameters;
+import board.Evaluation;
+import board.components.Ground;
+import board.components.Piece;
+import board.components.PieceModel;
+import compiler.interpreters.GroundSettingsCompiler;
+import compiler.interpreters.PieceSettingsCompiler;
+import compiler.lang.Grammar;
+import intelligence.Chesster;
+import repositories.PiecesRepository;
+import stats.MatchParameters;
+
+/**
+ * This tool tunes the weights and the square tables of the {@link Evaluation}
+ * used by {@link Chesster} on recorded games (see the games log of the
+ * {@link SelfPlayRunner}).
+ *
+ * The evaluation of each position of the games is turned into an expected
+ * score for RED with a sigmoid, the tuner minimizes the mean squared error
+ * between these expected scores and the results of the games by gradient
+ * descent (Adam). The parameters are the value of each piece type (in points,
+ * WEIGHT_UNIT points per weight) and the values of the squares of its tables:
+ * its DEFAULT table and the tables it already has for other grounds.
+ *
+ * The log is read again at each iteration and never held in memory: the games
+ * are read by batches, each batch is replayed by a thread of a pool which
+ * sums the error and the gradient of its positions, the sums are then added
+ * together.
+ *
+ * After each iteration, the tuned values are written to a copy of the piece
+ * settings, which the {@link PieceSettingsCompiler} loads. The weights of the
+ * settings are whole numbers: the value of a piece type is rounded to a
+ * weight and what is left is added to all the squares of its tables, so the
+ * evaluation of a position does not change.
+ *
+ * Usage: EvaluationTuner [games log] [piece settings] [tuned piece settings]
+ * [iterations] [learning rate] [threads] [K]
+ *
+ * @see Evaluation
+ * @see SelfPlayRunner
+ * @author Dorian CHENET
+ *
+ */
+public class EvaluationTuner {
+
+	private static final int SQUARES = BoardParameters.BOARD_SQUARES;
+
+	// The number of games replayed by a task.
+	private static final int BATCH_GAMES = 64;
+
+	// The positions of the first moves of a game are not used.
+	private static final int SKIPPED_MOVES = 8;
+
+	// The parameters of Adam.
+	private static final double BETA1 = 0.9;
+	private static final double BETA2 = 0.999;
+	private static final double EPSILON = 1e-8;
+
+	// The piece types and the index of their value in the parameters.
+	private ArrayList<String> types = new ArrayList<String>();
+	private HashMap<String, Integer> typeindexes = new HashMap<String, Integer>();
+
+	// For each piece type, the index of the first square of each of its tables.
+	private HashMap<String, HashMap<String, Integer>> tableindexes = new HashMap<String, HashMap<String, Integer>>();
+
+	private double[] parameters = null;
+	private double[] moments = null;
+	private double[] velocities = null;
+	private int steps = 0;
+
+	// The scaling of the evaluation in the sigmoid.
+	private double k = 1.0;
+
+	// The starting positions of the games, by board file. A board file can be
+	// met by the reading thread while the batches already submitted are read
+	// by the threads of the pool.
+	private ConcurrentHashMap<String, Board> startboards = new ConcurrentHashMap<String, Board>();
+
+	public static void main(String[] args) {
+		String logfile = args.length > 0 ? args[0] : "games.log";
+		String settings = args.length > 1 ? args[1] : InOutParameters.MOVEMENT_SETTINGS_PATH;
+		String tuned = args.length > 2 ? args[2] : "tunedsettings.txt";
+		int iterations = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+		double rate = args.length > 4 ? Double.parseDouble(args[4]) : 1.0;
+		int threads = args.length > 5 ? Integer.parseInt(args[5]) : Runtime.getRuntime().availableProcessors();
+		double k = args.length > 6 ? Double.parseDouble(args[6]) : 1.0;
+
+		GroundSettingsCompiler gsc = new GroundSettingsCompiler();
+		gsc.loadSettings(InOutParameters.GROUND_SETTING_PATH);
+
+		PieceSettingsCompiler psc = new PieceSettingsCompiler();
+		psc.loadSettings(settings);
+
+		EvaluationTuner tuner = new EvaluationTuner(k);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+
+		try {
+			for (int iteration = 1; iteration <= iterations; iteration++) {
+				long start = System.nanoTime();
+				double[] result = tuner.iterate(logfile, pool, threads, rate);
+				double seconds = (System.nanoTime() - start) / 1e9;
+
+				System.out.printf("iteration %d: error %.6f, %d positions, %.0f positions/s%n", iteration,
+						result[0], (long) result[1], result[1] / seconds);
+				tuner.writeSettings(settings, tuned);
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		} catch (InterruptedException e) {
+			System.err.println("Tuning interrupted");
+		} catch (ExecutionException e) {
+			System.err.println("Tuning failed: " + e.getCause());
+		}
+
+		pool.shutdown();
+	}
+
+	/**
+	 * The parameters start from the weights and the tables of the piece
+	 * models.
+	 *
+	 * @param k
+	 *            the scaling of the evaluation in the sigmoid.
+	 */
+	public EvaluationTuner(double k) {
+		this.k = k;
+
+		types.addAll(PiecesRepository.getInstance().getPieces().keySet());
+		Collections.sort(types);
+
+		int count = types.size();
+		for (String type : types) {
+			PieceModel model = PiecesRepository.getInstance().getPiece(type);
+			HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+			indexes.put(Grammar.DEFAULT_GROUND, count);
+			count += SQUARES;
+			for (String ground : model.getSquaretables().keySet()) {
+				if (!indexes.containsKey(ground)) {
+					indexes.put(ground, count);
+					count += SQUARES;
+				}
+			}
+			tableindexes.put(type, indexes);
+		}
+
+		parameters = new double[count];
+		moments = new double[count];
+		velocities = new double[count];
+
+		for (int index = 0; index < types.size(); index++) {
+			PieceModel model = PiecesRepository.getInstance().getPiece(types.get(index));
+			typeindexes.put(types.get(index), index);
+			parameters[index] = model.getWeight() * Evaluation.WEIGHT_UNIT;
+
+			for (String ground : model.getSquaretables().keySet()) {
+				int[] table = model.getSquaretables().get(ground);
+				int first = tableindexes.get(types.get(index)).get(ground);
+				for (int square = 0; square < SQUARES; square++) {
+					parameters[first + square] = table[square];
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reading the whole log and moving the parameters once along the gradient
+	 * of the error.
+	 *
+	 * @return the mean error of the positions before the move and the number
+	 *         of positions.
+	 */
+	public double[] iterate(String logfile, ExecutorService pool, int threads, double rate)
+			throws IOException, InterruptedException, ExecutionException {
+		double[] total = new double[parameters.length + 2];
+		ArrayDeque<Future<double[]>> pending = new ArrayDeque<Future<double[]>>();
+
+		BufferedReader reader = new BufferedReader(new FileReader(logfile));
+		ArrayList<String> batch = new ArrayList<String>();
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			if (!line.trim().isEmpty()) {
+				loadStartBoard(line);
+				batch.add(line);
+			}
+
+			if (batch.size() == BATCH_GAMES) {
+				// Only a few batches are read ahead of the threads.
+				if (pending.size() >= threads * 2) {
+					add(total, pending.poll().get());
+				}
+				ArrayList<String> games = batch;
+				pending.add(pool.submit(() -> replay(games)));
+				batch = new ArrayList<String>();
+			}
+		}
+		reader.close();
+
+		if (!batch.isEmpty()) {
+			ArrayList<String> games = batch;
+			pending.add(pool.submit(() -> replay(games)));
+		}
+		while (!pending.isEmpty()) {
+			add(total, pending.poll().get());
+		}
+
+		double positions = total[parameters.length + 1];
+		if (positions > 0) {
+			step(total, positions, rate);
+		}
+		return new double[] { positions > 0 ? total[parameters.length] / positions : 0, positions };
+	}
+
+	/**
+	 * Writing a copy of the piece settings with the tuned weights and tables.
+	 * The square tables of the settings are replaced by the tuned ones, which
+	 * are written with a value per square in the sections of their grounds.
+	 *
+	 * @param settings
+	 *            the piece settings the parameters were read from.
+	 * @param tuned
+	 *            the file of the copy.
+	 */
+	public void writeSettings(String settings, String tuned) throws IOException {
+		BufferedReader reader = new BufferedReader(new FileReader(settings));
+		PrintWriter writer = new PrintWriter(new FileWriter(tuned));
+		String type = null;
+		String line;
+
+		while ((line = reader.readLine()) != null) {
+			if (type != null && line.startsWith(Grammar.TAG_SQUARE_TABLE + Grammar.SEPARATOR_DATA)) {
+				// The tables are written again below.
+			}
+
+			else if (line.contains(Grammar.RULE_OPEN_BRACKET) && line.contains(Grammar.RULE_CLOSE_BRACKET)) {
+				writer.println(line);
+			}
+
+			else if (line.contains(Grammar.PIECE_OPEN_BRACKET) && line.contains(Grammar.PIECE_CLOSE_BRACKET)) {
+				type = line.substring(line.indexOf(Grammar.PIECE_OPEN_BRACKET) + 1,
+						line.indexOf(Grammar.PIECE_CLOSE_BRACKET));
+				if (!typeindexes.containsKey(type)) {
+					type = null;
+				}
+				writer.println(line);
+			}
+
+			else if (type != null && line.contains(Grammar.GROUND_OPEN_BRACKET)
+					&& line.contains(Grammar.GROUND_CLOSE_BRACKET)) {
+				String ground = line.substring(line.indexOf(Grammar.GROUND_OPEN_BRACKET) + 1,
+						line.indexOf(Grammar.GROUND_CLOSE_BRACKET));
+				writer.println(line);
+				if (tableindexes.get(type).containsKey(ground)) {
+					writer.println(Grammar.TAG_SQUARE_TABLE + Grammar.SEPARATOR_DATA + formatTable(type, ground));
+				}
+			}
+
+			else if (type != null && line.startsWith(Grammar.TAG_WEIGHT + Grammar.SEPARATOR_DATA)) {
+				writer.println(Grammar.TAG_WEIGHT + Grammar.SEPARATOR_DATA + getWeight(type));
+			}
+
+			else {
+				if (line.equals(Grammar.BALISE_END)) {
+					type = null;
+				}
+				writer.println(line);
+			}
+		}
+
+		reader.close();
+		writer.close();
+	}
+
+	/**
+	 * Replaying a batch of games.
+	 *
+	 * @param games
+	 *            the lines of the games in the log.
+	 * @return the gradient of the error summed over the positions of the
+	 *         games, then the summed error and the number of positions.
+	 */
+	private double[] replay(ArrayList<String> games) {
+		double[] sums = new double[parameters.length + 2];
+		double scaling = k * Math.log(10) / 400;
+
+		for (String game : games) {
+			String tokens[] = game.trim().split(" ");
+			double result = Double.parseDouble(tokens[0]);
+			Board board = new Board(startboards.get(tokens[1]));
+
+			for (int index = 2; index < tokens.length; index++) {
+				String squares[] = tokens[index].split("-");
+				board.makeMove(Integer.parseInt(squares[0]), Integer.parseInt(squares[1]));
+
+				if (index - 2 >= SKIPPED_MOVES) {
+					double expected = 1 / (1 + Math.exp(-scaling * evaluate(board)));
+					double error = result - expected;
+					sums[parameters.length] += error * error;
+					sums[parameters.length + 1]++;
+					addGradient(board, sums, -2 * error * expected * (1 - expected) * scaling);
+				}
+			}
+		}
+
+		return sums;
+	}
+
+	// The evaluation of the position for RED with the current parameters.
+	private double evaluate(Board board) {
+		double value = 0;
+		for (int square = 0; square < SQUARES; square++) {
+			Piece piece = board.getPiece(square);
+			if (piece != null) {
+				double sign = piece.getColor().equals(MatchParameters.RED_COLOR) ? 1 : -1;
+				value += sign * (parameters[typeindexes.get(piece.getType())]
+						+ parameters[getTableIndex(board, piece, square)]);
+			}
+		}
+		return value;
+	}
+
+	// Adding the gradient of the error of the position, the derivative of the
+	// error by the evaluation being given.
+	private void addGradient(Board board, double[] sums, double derivative) {
+		for (int square = 0; square < SQUARES; square++) {
+			Piece piece = board.getPiece(square);
+			if (piece != null) {
+				double sign = piece.getColor().equals(MatchParameters.RED_COLOR) ? 1 : -1;
+				sums[typeindexes.get(piece.getType())] += sign * derivative;
+				sums[getTableIndex(board, piece, square)] += sign * derivative;
+			}
+		}
+	}
+
+	// The index in the parameters of the square of the table used by the
+	// piece, as in the evaluation.
+	private int getTableIndex(Board board, Piece piece, int square) {
+		HashMap<String, Integer> indexes = tableindexes.get(piece.getType());
+		Ground ground = board.getGround(Board.squareX(square), Board.squareY(square));
+
+		Integer first = null;
+		if (ground != null) {
+			first = indexes.get(ground.getName());
+		}
+		if (first == null) {
+			first = indexes.get(Grammar.DEFAULT_GROUND);
+		}
+		return first + Evaluation.getTableSquare(piece.getColor(), square);
+	}
+
+	// A step of Adam along the mean gradient.
+	private void step(double[] sums, double positions, double rate) {
+		steps++;
+		double correction1 = 1 - Math.pow(BETA1, steps);
+		double correction2 = 1 - Math.pow(BETA2, steps);
+
+		for (int index = 0; index < parameters.length; index++) {
+			double gradient = sums[index] / positions;
+			moments[index] = BETA1 * moments[index] + (1 - BETA1) * gradient;
+			velocities[index] = BETA2 * velocities[index] + (1 - BETA2) * gradient * gradient;
+			parameters[index] -= rate * (moments[index] / correction1)
+					/ (Math.sqrt(velocities[index] / correction2) + EPSILON);
+		}
+	}
+
+	// The starting position of the board file of a game, compiled the first
+	// time the file is met.
+	private void loadStartBoard(String game) {
+		String tokens[] = game.trim().split(" ", 3);
+		if (!startboards.containsKey(tokens[1])) {
+			startboards.put(tokens[1], SelfPlayRunner.loadBoard(tokens[1]));
+		}
+	}
+
+	// The weight of a piece type: its tuned value rounded to a weight of at
+	// least 1.
+	private int getWeight(String type) {
+		long weight = Math.round(parameters[typeindexes.get(type)] / Evaluation.WEIGHT_UNIT);
+		return (int) Math.max(1, weight);
+	}
+
+	// The values of a tuned table, with what the weight leaves of the value of
+	// the piece type.
+	private String formatTable(String type, String ground) {
+		double left = parameters[typeindexes.get(type)] - getWeight(type) * Evaluation.WEIGHT_UNIT;
+		int first = tableindexes.get(type).get(ground);
+
+		StringBuilder values = new StringBuilder();
+		for (int square = 0; square < SQUARES; square++) {
+			if (square > 0) {
+				values.append(Grammar.SEPARATOR_COORDONATES);
+			}
+			values.append(Math.round(parameters[first + square] + left));
+		}
+		return values.toString();
+	}
+
+	private static void add(double[] total, double[] sums) {
+		for (int index = 0; index < total.length; index++) {
+			total[index] += sums[index];
+		}
+	}
+}
@@ -0,0 +1,193 @@
+package test.io;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import board.Board;
+import board.BoardParameters;
+import compiler.interpreters.GroundSettingsCompiler;
+import compiler.interpreters.PieceSettingsCompiler;
+import engine.MoveGenerator;
+import intelligence.Chesster;
+import intelligence.OpeningBook;
+import stats.MatchParameters;
+
+/**
+ * This tool builds the {@link OpeningBook} of each board from recorded games
+ * (see the games log of the {@link SelfPlayRunner}, other game records can be
+ * written in the same format).
+ *
+ * The first moves of each game are replayed. For each position and each move
+ * played in it, the builder counts the games and the points the move brought
+ * to the player (2 for a win, 1 for a draw). The moves played in enough games
+ * which brought points are written to the book of the board of the game, their
+ * weight being their points: {@link Chesster} plays them in proportion.
+ *
+ * The log is read line by line, only the counts are kept in memory.
+ *
+ * Usage: OpeningBookBuilder [games log] [book moves] [min games]
+ *
+ * @see OpeningBook
+ * @see SelfPlayRunner
+ * @author Dorian CHENET
+ *
+ */
+public class OpeningBookBuilder {
+
+	// For each board file, for each position, the games and the points of
+	// each move.
+	private HashMap<String, HashMap<Long, HashMap<Integer, int[]>>> positions = new HashMap<String, HashMap<Long, HashMap<Integer, int[]>>>();
+
+	// The starting positions of the games, by board file.
+	private HashMap<String, Board> startboards = new HashMap<String, Board>();
+
+	public static void main(String[] args) {
+		String logfile = args.length > 0 ? args[0] : "games.log";
+		int bookmoves = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+		int mingames = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+
+		GroundSettingsCompiler gsc = new GroundSettingsCompiler();
+		gsc.loadSettings(InOutParameters.GROUND_SETTING_PATH);
+
+		PieceSettingsCompiler psc = new PieceSettingsCompiler();
+		psc.loadSettings(InOutParameters.MOVEMENT_SETTINGS_PATH);
+
+		OpeningBookBuilder builder = new OpeningBookBuilder();
+		try (BufferedReader reader = new BufferedReader(new FileReader(logfile))) {
+			// A malformed line (a game cut when a run was stopped) is skipped.
+			String line;
+			int number = 0;
+			while ((line = reader.readLine()) != null) {
+				number++;
+				if (!line.trim().isEmpty()) {
+					try {
+						builder.addGame(line, bookmoves);
+					} catch (IllegalArgumentException e) {
+						System.err.println(logfile + ":" + number + ": " + e.getMessage() + ", line skipped");
+					}
+				}
+			}
+
+			for (String boardfile : builder.positions.keySet()) {
+				int records = builder.writeBook(boardfile, mingames);
+				System.out.println(OpeningBook.getBookPath(boardfile) + ": " + records + " moves, "
+						+ builder.positions.get(boardfile).size() + " positions");
+			}
+		} catch (IOException e) {
+			System.err.println(e.getMessage());
+		}
+	}
+
+	/**
+	 * Counting the first moves of a game.
+	 *
+	 * @param game
+	 *            the line of the game in the log.
+	 * @param bookmoves
+	 *            the number of moves of the game which are counted.
+	 * @throws IllegalArgumentException
+	 *             if the line is malformed, nothing is counted.
+	 */
+	public void addGame(String game, int bookmoves) {
+		String tokens[] = game.trim().split(" ");
+		if (tokens.length < 2) {
+			throw new IllegalArgumentException("no board file");
+		}
+		double result = Double.parseDouble(tokens[0]);
+		if (result < 0 || result > 1) {
+			throw new IllegalArgumentException("bad result " + tokens[0]);
+		}
+
+		// The moves are read before any of them is counted.
+		int length = Math.min(tokens.length - 2, bookmoves);
+		int[] froms = new int[length];
+		int[] tos = new int[length];
+		for (int index = 0; index < length; index++) {
+			String squares[] = tokens[index + 2].split("-");
+			if (squares.length != 2) {
+				throw new IllegalArgumentException("bad move " + tokens[index + 2]);
+			}
+			froms[index] = Integer.parseInt(squares[0]);
+			tos[index] = Integer.parseInt(squares[1]);
+			if (froms[index] < 0 || froms[index] >= BoardParameters.BOARD_SQUARES || tos[index] < 0
+					|| tos[index] >= BoardParameters.BOARD_SQUARES) {
+				throw new IllegalArgumentException("bad move " + tokens[index + 2]);
+			}
+		}
+
+		if (!startboards.containsKey(tokens[1])) {
+			startboards.put(tokens[1], SelfPlayRunner.loadBoard(tokens[1]));
+			positions.put(tokens[1], new HashMap<Long, HashMap<Integer, int[]>>());
+		}
+		Board board = new Board(startboards.get(tokens[1]));
+		HashMap<Long, HashMap<Integer, int[]>> boardpositions = positions.get(tokens[1]);
+
+		for (int index = 0; index < length; index++) {
+			int from = froms[index];
+			int to = tos[index];
+
+			HashMap<Integer, int[]> moves = boardpositions.get(board.getKey());
+			if (moves == null) {
+				moves = new HashMap<Integer, int[]>();
+				boardpositions.put(board.getKey(), moves);
+			}
+			int[] counts = moves.get(MoveGenerator.encode(from, to));
+			if (counts == null) {
+				counts = new int[2];
+				moves.put(MoveGenerator.encode(from, to), counts);
+			}
+
+			double points = board.getSideToMove().equals(MatchParameters.RED_COLOR) ? result : 1 - result;
+			counts[0]++;
+			counts[1] += (int) Math.round(points * 2);
+
+			board.makeMove(from, to);
+		}
+	}
+
+	/**
+	 * Writing the book of a board, the records sorted by key and, for a same
+	 * key, by decreasing weight.
+	 *
+	 * @param boardfile
+	 * @param mingames
+	 *            the number of games a move must have been played in.
+	 * @return the number of records.
+	 */
+	public int writeBook(String boardfile, int mingames) throws IOException {
+		ArrayList<Long> keys = new ArrayList<Long>(positions.get(boardfile).keySet());
+		Collections.sort(keys);
+
+		int count = 0;
+		for (HashMap<Integer, int[]> moves : positions.get(boardfile).values()) {
+			count += moves.size();
+		}
+		long[] recordkeys = new long[count];
+		int[] recordmoves = new int[count];
+		int[] recordweights = new int[count];
+
+		count = 0;
+		for (Long key : keys) {
+			ArrayList<Map.Entry<Integer, int[]>> moves = new ArrayList<Map.Entry<Integer, int[]>>(
+					positions.get(boardfile).get(key).entrySet());
+			moves.sort((first, second) -> Integer.compare(second.getValue()[1], first.getValue()[1]));
+
+			for (Map.Entry<Integer, int[]> move : moves) {
+				if (move.getValue()[0] >= mingames && move.getValue()[1] > 0) {
+					recordkeys[count] = key;
+					recordmoves[count] = move.getKey();
+					recordweights[count] = move.getValue()[1];
+					count++;
+				}
+			}
+		}
+
+		OpeningBook.write(OpeningBook.getBookPath(boardfile), recordkeys, recordmoves, recordweights, count);
+		return count;
+	}
+}
@@ -0,0 +1,150 @@
+package test.io;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import board.Board;
+import compiler.interpreters.BoardSettingsCompiler;
+import compiler.interpreters.GroundSettingsCompiler;
+import compiler.interpreters.PieceSettingsCompiler;
+import engine.MoveGenerator;
+import engine.MovementValidator;
+import stats.MatchContext;
+import stats.MatchParameters;
+
+/**
+ * This tool counts the sequences of legal moves (perft) from the position of a
+ * board settings file up to a given depth. The counts are used to check that
+ * a change of the {@link MovementValidator} or of the rules does not change the
+ * moves generated, and the time taken to benchmark the move generation.
+ *
+ * The count of each move of the root is printed (divide). With more than one
+ * thread, the moves of the root are split between the threads, each thread
+ * working on its own copy of the board.
+ *
+ * Usage: Perft [board file] [depth] [threads] [color]
+ *
+ * @see MoveGenerator
+ * @see MovementValidator
+ * @author Dorian CHENET
+ *
+ */
+public class Perft {
+
+	public static void main(String[] args) {
+		String boardfile = args.length > 0 ? args[0] : InOutParameters.BOARD_SETTING_PATH;
+		int depth = args.length > 1 ? Math.max(1, Integer.parseInt(args[1])) : 3;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : 1;
+		String color = args.length > 3 ? args[3] : MatchParameters.RED_COLOR;
+
+		GroundSettingsCompiler gsc = new GroundSettingsCompiler();
+		gsc.loadSettings(InOutParameters.GROUND_SETTING_PATH);
+
+		PieceSettingsCompiler psc = new PieceSettingsCompiler();
+		psc.loadSettings(InOutParameters.MOVEMENT_SETTINGS_PATH);
+
+		MatchContext context = new MatchContext();
+		BoardSettingsCompiler bsc = new BoardSettingsCompiler(context);
+		bsc.loadSettings(boardfile);
+		Board board = new Board(context.getBoard());
+
+		long start = System.nanoTime();
+		int[] rootmoves = new MoveGenerator(board).generateLegalMoves(color);
+		long[] counts = new long[rootmoves.length];
+
+		if (threads <= 1) {
+			MoveGenerator generator = new MoveGenerator(board);
+			for (int index = 0; index < rootmoves.length; index++) {
+				counts[index] = divide(generator, rootmoves[index], color, depth);
+			}
+		}
+
+		else {
+			ExecutorService pool = Executors.newFixedThreadPool(threads);
+			ArrayList<Future<Long>> results = new ArrayList<Future<Long>>();
+
+			// Each move of the root is counted on its own copy of the board.
+			for (int move : rootmoves) {
+				MoveGenerator generator = new MoveGenerator(new Board(board));
+				results.add(pool.submit(() -> divide(generator, move, color, depth)));
+			}
+
+			// A failed move of the root would make the counts wrong, the tool
+			// stops instead of printing them.
+			try {
+				for (int index = 0; index < rootmoves.length; index++) {
+					counts[index] = results.get(index).get();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (ExecutionException e) {
+				System.err.println("Perft failed: " + e.getCause());
+				System.exit(1);
+			} finally {
+				pool.shutdown();
+			}
+		}
+
+		long nodes = 0;
+		for (int index = 0; index < rootmoves.length; index++) {
+			int from = MoveGenerator.from(rootmoves[index]);
+			int to = MoveGenerator.to(rootmoves[index]);
+			System.out.println(Board.squareX(from) + "," + Board.squareY(from) + "-" + Board.squareX(to) + ","
+					+ Board.squareY(to) + ": " + counts[index]);
+			nodes += counts[index];
+		}
+
+		double seconds = (System.nanoTime() - start) / 1e9;
+		System.out.println("depth " + depth + ": " + nodes + " nodes");
+		System.out.printf("%.3f s, %.0f nodes/s%n", seconds, nodes / seconds);
+	}
+
+	// Counts the sequences of legal moves starting with the given move.
+	private static long divide(MoveGenerator generator, int move, String color, int depth) {
+		if (depth <= 1) {
+			return 1;
+		}
+		Board board = generator.getBoard();
+		board.makeMove(MoveGenerator.from(move), MoveGenerator.to(move));
+		long nodes = perft(generator, MoveGenerator.opponentColor(color), depth - 1);
+		board.unmakeMove();
+		return nodes;
+	}
+
+	/**
+	 * @param generator
+	 *            the generator of the board to count the moves on.
+	 * @param color
+	 *            the color of the player to move.
+	 * @param depth
+	 * @return the number of sequences of legal moves of the given depth.
+	 */
+	public static long perft(MoveGenerator generator, String color, int depth) {
+		// The depth is the ply of the buffer of the moves, it is different at
+		// each level of the recursion.
+		int count = generator.generateLegalMoves(color, depth);
+		int[] moves = generator.getMoves(depth);
+
+		// The moves of the last ply are counted, not made.
+		if (depth == 1) {
+			return count;
+		}
+
+		Board board = generator.getBoard();
+		String opponent = MoveGenerator.opponentColor(color);
+		long nodes = 0;
+
+		for (int index = 0; index < count; index++) {
+			int move = moves[index];
+			board.makeMove(MoveGenerator.from(move), MoveGenerator.to(move));
+			nodes += perft(generator, opponent, depth - 1);
+			board.unmakeMove();
+		}
+
+		return nodes;
+	}
+}
@@ -0,0 +1,277 @@
+package test.io;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import board.Board;
+import board.components.Piece;
+import compiler.interpreters.BoardSettingsCompiler;
+import compiler.interpreters.GroundSettingsCompiler;
+import compiler.interpreters.PieceSettingsCompiler;
+import engine.MainEngine;
+import engine.MoveGenerator;
+import engine.TranspositionTable;
+import intelligence.AlphaBetaSearch;
+import intelligence.Chesster;
+import intelligence.PriorityMove;
+import stats.MatchContext;
+import stats.MatchParameters;
+import stats.Player;
+import strategy.data.Coordinates;
+
+/**
+ * This runner plays Chesster against Chesster without the game window, to
+ * measure the throughput of the engine. Each game has its own
+ * {@link MatchContext}, the games are played by a pool of threads.
+ *
+ * A game ends when a player wins, when the player who plays has no move
+ * (stalemate) or when the maximum number of moves is reached (draw).
+ *
+ * The games can be recorded in a log, one line per game: the result for RED
+ * (1 for a win, 0 for a loss, 0.5 for a draw, the player who has no move
+ * loses), the board file and the moves, each move being the square of the
+ * piece and the square where it goes ("from-to", see {@link Board#square}).
+ * The first moves of each game may be drawn at random among the possible
+ * moves so that the recorded games differ. The {@link EvaluationTuner} reads
+ * these logs, as well as the {@link OpeningBookBuilder}.
+ *
+ * Usage: SelfPlayRunner [board file] [games] [threads] [time per move (ms)]
+ * [max depth] [max moves] [games log] [random opening moves]
+ *
+ * @see Chesster
+ * @see MainEngine
+ * @see MatchContext
+ * @author Dorian CHENET
+ *
+ */
+public class SelfPlayRunner {
+
+	// The possible results of a game.
+	public static final int RED_WINS = 0;
+	public static final int BLACK_WINS = 1;
+	public static final int STALEMATE = 2;
+	public static final int DRAW = 3;
+
+	private static final String[] RESULT_NAMES = { "RED wins", "BLACK wins", "stalemate", "draw (max moves)" };
+
+	// The number of slots of the transposition table of each player.
+	private static final int TABLE_SIZE = 1 << 16;
+
+	// The results of the games for RED, as written in the games log.
+	private static final String[] LOG_RESULTS = { "1", "0", "", "0.5" };
+
+	public static void main(String[] args) {
+		String boardfile = args.length > 0 ? args[0] : InOutParameters.BOARD_SETTING_PATH;
+		int games = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+		int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		long movetime = args.length > 3 ? Long.parseLong(args[3]) : 50;
+		int maxdepth = args.length > 4 ? Integer.parseInt(args[4]) : 2;
+		int maxmoves = args.length > 5 ? Integer.parseInt(args[5]) : 200;
+		String logfile = args.length > 6 ? args[6] : null;
+		int openingmoves = args.length > 7 ? Integer.parseInt(args[7]) : 0;
+
+		PrintWriter log = null;
+		if (logfile != null) {
+			try {
+				log = new PrintWriter(new FileWriter(logfile, true));
+			} catch (IOException e) {
+				// The games are not played if they cannot be recorded.
+				System.err.println(e.getMessage());
+				return;
+			}
+		}
+		PrintWriter gameslog = log;
+
+		GroundSettingsCompiler gsc = new GroundSettingsCompiler();
+		gsc.loadSettings(InOutParameters.GROUND_SETTING_PATH);
+
+		PieceSettingsCompiler psc = new PieceSettingsCompiler();
+		psc.loadSettings(InOutParameters.MOVEMENT_SETTINGS_PATH);
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<int[]>> results = new ArrayList<Future<int[]>>();
+
+		long start = System.nanoTime();
+		for (int game = 0; game < games; game++) {
+			long seed = game;
+			results.add(pool.submit(
+					() -> playGame(boardfile, movetime, maxdepth, maxmoves, gameslog, openingmoves, seed)));
+		}
+
+		// The failed games are reported and left out of the statistics, which
+		// are computed over the completed games only.
+		int[] distribution = new int[RESULT_NAMES.length];
+		long moves = 0;
+		int completed = 0;
+		int failed = 0;
+		try {
+			for (Future<int[]> result : results) {
+				try {
+					int[] game = result.get();
+					distribution[game[0]]++;
+					moves += game[1];
+					completed++;
+				} catch (ExecutionException e) {
+					System.err.println("Game failed: " + e.getCause());
+					failed++;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdown();
+			if (log != null) {
+				log.close();
+			}
+		}
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		System.out.println("board: " + boardfile + ", " + completed + " games, " + threads + " threads, " + movetime
+				+ " ms/move, depth " + maxdepth);
+		if (failed > 0) {
+			System.err.println(failed + " of " + games + " games failed");
+		}
+		if (completed > 0) {
+			System.out.printf("%.2f s, %.3f games/s, %.1f moves/s, %.1f moves/game%n", seconds,
+					completed / seconds, moves / seconds, (double) moves / completed);
+		}
+		for (int index = 0; index < RESULT_NAMES.length; index++) {
+			System.out.println(RESULT_NAMES[index] + ": " + distribution[index]);
+		}
+	}
+
+	/**
+	 * Plays a game between two Chesster.
+	 *
+	 * @return the result of the game and its number of moves.
+	 */
+	public static int[] playGame(String boardfile, long movetime, int maxdepth, int maxmoves) {
+		return playGame(boardfile, movetime, maxdepth, maxmoves, null, 0, 0);
+	}
+
+	/**
+	 * Plays a game between two Chesster and records it.
+	 *
+	 * @param log
+	 *            the games log, null if the game is not recorded.
+	 * @param openingmoves
+	 *            the number of moves drawn at random at the start of the game.
+	 * @param seed
+	 *            the seed of the random moves.
+	 * @return the result of the game and its number of moves.
+	 */
+	public static int[] playGame(String boardfile, long movetime, int maxdepth, int maxmoves, PrintWriter log,
+			int openingmoves, long seed) {
+		MatchContext context = new MatchContext();
+
+		Chesster red = new Chesster(context, MatchParameters.RED_COLOR, new ArrayList<Piece>(),
+				new ArrayList<Piece>(), new ArrayList<Piece>());
+		Chesster black = new Chesster(context, MatchParameters.BLACK_COLOR, new ArrayList<Piece>(),
+				new ArrayList<Piece>(), new ArrayList<Piece>());
+		red.setSearch(new AlphaBetaSearch(movetime, maxdepth, new TranspositionTable(TABLE_SIZE)));
+		black.setSearch(new AlphaBetaSearch(movetime, maxdepth, new TranspositionTable(TABLE_SIZE)));
+
+		context.setPlayer1(red);
+		context.setPlayer2(black);
+		context.setCurrentplayer(red);
+		context.setWaitingplayer(black);
+
+		BoardSettingsCompiler bsc = new BoardSettingsCompiler(context);
+		bsc.loadSettings(boardfile);
+
+		context.getEngine().advance();
+
+		Random random = new Random(seed);
+		StringBuilder record = new StringBuilder();
+		String stalemated = null;
+
+		int moves = 0;
+		int result = DRAW;
+		while (context.getWinner() == null && moves < maxmoves && result == DRAW) {
+			Chesster player = (Chesster) context.getCurrentplayer();
+			PriorityMove move = null;
+			if (moves < openingmoves) {
+				move = selectRandomMove(player, random);
+			} else {
+				move = player.selectMove();
+			}
+
+			if (move == null) {
+				result = STALEMATE;
+				stalemated = player.getColor();
+			} else {
+				player.playMove(move);
+				moves++;
+				context.getEngine().advance();
+				record.append(' ').append(MoveGenerator.from(move.getMove())).append('-')
+						.append(MoveGenerator.to(move.getMove()));
+			}
+		}
+
+		// The threads of the searches are stopped with the game.
+		red.getSearch().close();
+		black.getSearch().close();
+
+		if (context.getWinner() != null) {
+			if (context.getWinner().getColor().equals(MatchParameters.RED_COLOR)) {
+				result = RED_WINS;
+			} else {
+				result = BLACK_WINS;
+			}
+		}
+
+		if (log != null) {
+			String logresult = LOG_RESULTS[result];
+			if (result == STALEMATE) {
+				logresult = stalemated.equals(MatchParameters.RED_COLOR) ? "0" : "1";
+			}
+			synchronized (log) {
+				log.println(logresult + " " + boardfile + record);
+			}
+		}
+
+		return new int[] { result, moves };
+	}
+
+	/**
+	 * @param boardfile
+	 * @return the starting position of the board file, outside of any game.
+	 */
+	public static Board loadBoard(String boardfile) {
+		MatchContext context = new MatchContext();
+		context.setPlayer1(new Player("RED", MatchParameters.RED_COLOR, new ArrayList<Piece>(),
+				new ArrayList<Piece>(), new ArrayList<Piece>()));
+		context.setPlayer2(new Player("BLACK", MatchParameters.BLACK_COLOR, new ArrayList<Piece>(),
+				new ArrayList<Piece>(), new ArrayList<Piece>()));
+
+		BoardSettingsCompiler bsc = new BoardSettingsCompiler(context);
+		bsc.loadSettings(boardfile);
+		return context.getBoard();
+	}
+
+	// A move drawn at random among the possible moves of the player, null if
+	// it has none.
+	private static PriorityMove selectRandomMove(Chesster player, Random random) {
+		ArrayList<Piece> pieces = new ArrayList<Piece>(player.getPieces());
+		pieces.add(player.getWinconditionpiece());
+
+		ArrayList<PriorityMove> choices = new ArrayList<PriorityMove>();
+		for (Piece piece : pieces) {
+			for (Coordinates coordonates : piece.getPossiblemoves()) {
+				choices.add(new PriorityMove(piece.getCoordonates(), coordonates, 0));
+			}
+		}
+
+		if (choices.isEmpty()) {
+			return null;
+		}
+		return choices.get(random.nextInt(choices.size()));
+	}
+}